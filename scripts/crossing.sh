@@ -0,0 +1,4 @@
+#!/bin/bash
+# Starts puzzles.crossing.Crossing with the AppCDS archive, see launch.sh
+MAIN=puzzles.crossing.Crossing
+source "$(dirname "$0")/launch.sh"
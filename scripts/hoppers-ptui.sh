@@ -0,0 +1,4 @@
+#!/bin/bash
+# Starts puzzles.hoppers.ptui.HoppersPTUI with the AppCDS archive, see launch.sh
+MAIN=puzzles.hoppers.ptui.HoppersPTUI
+source "$(dirname "$0")/launch.sh"
@@ -0,0 +1,4 @@
+#!/bin/bash
+# Starts puzzles.hoppers.solver.Hoppers with the AppCDS archive, see launch.sh
+MAIN=puzzles.hoppers.solver.Hoppers
+source "$(dirname "$0")/launch.sh"
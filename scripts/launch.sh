@@ -0,0 +1,17 @@
+#!/bin/bash
+# Runs a main class from build/puzzles-cli.jar with the AppCDS archive made by package.sh.
+# Sourced by the launchers, which set MAIN first. The JVM falls back to loading classes
+# normally if the archive is missing or doesn't match, and PUZZLES_CDS=off turns it off.
+# JAVA_OPTS="--add-modules jdk.incubator.vector" lets hoppers use the vector kernel.
+# @author Jake Edelstein
+ROOT="$(cd "$(dirname "${BASH_SOURCE[0]}")/.." && pwd)"
+BUILD="$ROOT/build"
+if [ ! -f "$BUILD/puzzles-cli.jar" ]; then
+    echo "Run scripts/package.sh first" >&2
+    exit 1
+fi
+CDS=()
+if [ "$PUZZLES_CDS" != "off" ] && [ -f "$BUILD/puzzles.jsa" ]; then
+    CDS=(-XX:SharedArchiveFile="$BUILD/puzzles.jsa" -Xshare:auto)
+fi
+exec "${JAVA:-java}" "${CDS[@]}" $JAVA_OPTS -cp "$BUILD/puzzles-cli.jar" "$MAIN" "$@"
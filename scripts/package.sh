@@ -0,0 +1,42 @@
+#!/bin/bash
+# Builds build/puzzles-cli.jar from the sources that don't use JavaFX, then runs each
+# command line program once on a small puzzle to record the classes it loads, and dumps
+# those classes into the AppCDS archive build/puzzles.jsa that the launchers start with.
+# The archive only works with the jar it was made from and the same java, so run this
+# again after changing either.
+# @author Jake Edelstein
+set -e
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+BUILD="$ROOT/build"
+JAVA="${JAVA:-java}"
+JAVAC="${JAVAC:-javac}"
+JAR="${JAR:-jar}"
+
+rm -rf "$BUILD"
+mkdir -p "$BUILD/classes" "$BUILD/classlists"
+cd "$ROOT"
+
+# the GUI is the only part that needs JavaFX, and module-info requires it, so both are left out
+find src -name '*.java' ! -path '*/gui/*' ! -name module-info.java > "$BUILD/sources.txt"
+"$JAVAC" --add-modules jdk.incubator.vector -d "$BUILD/classes" @"$BUILD/sources.txt"
+"$JAR" --create --file "$BUILD/puzzles-cli.jar" -C "$BUILD/classes" .
+
+# training runs, one class list each, on puzzles that solve in well under a second
+train() {
+    local name="$1"
+    shift
+    "$JAVA" -Xshare:off -XX:DumpLoadedClassList="$BUILD/classlists/$name.classlist" \
+        -Dpuzzles.cache=on -Dpuzzles.cache.dir="$BUILD/training-cache" \
+        -cp "$BUILD/puzzles-cli.jar" "$@" > /dev/null
+}
+train hoppers puzzles.hoppers.solver.Hoppers data/hoppers/hoppers-4.txt
+train crossing puzzles.crossing.Crossing 3 2
+train strings puzzles.strings.Strings AB XD
+train ptui puzzles.hoppers.ptui.HoppersPTUI data/hoppers/hoppers-4.txt < input/hoppers-4-ptui-in.txt
+rm -rf "$BUILD/training-cache"
+
+sort -u "$BUILD"/classlists/*.classlist > "$BUILD/puzzles.classlist"
+"$JAVA" -Xshare:dump -XX:SharedClassListFile="$BUILD/puzzles.classlist" \
+    -XX:SharedArchiveFile="$BUILD/puzzles.jsa" \
+    -cp "$BUILD/puzzles-cli.jar" > "$BUILD/dump.log"
+echo "Wrote $BUILD/puzzles-cli.jar and $BUILD/puzzles.jsa ($(grep -c . "$BUILD/puzzles.classlist") classes)"
@@ -0,0 +1,45 @@
+#!/bin/bash
+# Times how long each command line program takes to start and solve a small puzzle, with
+# class data sharing off, with only the JDK's default archive, and with the AppCDS archive
+# made by package.sh. It also checks that no JavaFX class gets loaded.
+# Usage: scripts/startup-bench.sh [runs]
+# @author Jake Edelstein
+set -e
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+BUILD="$ROOT/build"
+JAVA="${JAVA:-java}"
+RUNS="${1:-10}"
+cd "$ROOT"
+if [ ! -f "$BUILD/puzzles.jsa" ]; then
+    echo "Run scripts/package.sh first" >&2
+    exit 1
+fi
+
+# the average wall time of a command over the runs, in milliseconds
+average() {
+    local total=0
+    for ((i = 0; i < RUNS; i++)); do
+        local start=$(date +%s%N)
+        "$@" > /dev/null < "${INPUT:-/dev/null}"
+        total=$((total + $(date +%s%N) - start))
+    done
+    echo $((total / RUNS / 1000000))
+}
+
+bench() {
+    local name="$1"
+    shift
+    local run=("$JAVA" -cp "$BUILD/puzzles-cli.jar")
+    local off=$(average "${run[@]}" -Xshare:off "$@")
+    local jdk=$(average "${run[@]}" "$@")
+    local app=$(average "${run[@]}" -XX:SharedArchiveFile="$BUILD/puzzles.jsa" "$@")
+    local javafx=$("${run[@]}" -XX:SharedArchiveFile="$BUILD/puzzles.jsa" -Xlog:class+load=info "$@" \
+        < "${INPUT:-/dev/null}" | grep -c ' javafx\.' || true)
+    printf "%-10s %8d %8d %8d %8d\n" "$name" "$off" "$jdk" "$app" "$javafx"
+}
+
+printf "%-10s %8s %8s %8s %8s\n" "ms" "no CDS" "JDK CDS" "AppCDS" "JavaFX"
+bench hoppers puzzles.hoppers.solver.Hoppers data/hoppers/hoppers-4.txt
+bench crossing puzzles.crossing.Crossing 3 2
+bench strings puzzles.strings.Strings AB XD
+INPUT=input/hoppers-4-ptui-in.txt bench ptui puzzles.hoppers.ptui.HoppersPTUI data/hoppers/hoppers-4.txt
@@ -0,0 +1,4 @@
+#!/bin/bash
+# Starts puzzles.strings.Strings with the AppCDS archive, see launch.sh
+MAIN=puzzles.strings.Strings
+source "$(dirname "$0")/launch.sh"
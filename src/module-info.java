@@ -1,5 +1,8 @@
 module BFSPuzzleSolver {
     requires transitive javafx.controls;
+    requires jdk.httpserver;
+    requires jdk.management;
+    requires static jdk.incubator.vector;
     exports puzzles.common;
     exports puzzles.common.solver;
     exports puzzles.hoppers.gui;
@@ -0,0 +1,77 @@
+package puzzles.common.solver;
+
+import java.util.List;
+
+/**
+ * A result from AnytimeSolver. A proven result is exact: either a shortest path, or proof
+ * that there is no solution. Any other result with a path is a heuristic one, a real
+ * solution that a shorter one may still exist beside.
+ * @author Jake Edelstein
+ */
+public class AnytimeResult {
+    private final List<String> path;
+    private final boolean proven;
+    private final int beamWidth;
+    private final int rounds;
+    private final long elapsedMillis;
+
+    /**
+     * @param path the path to the goal, or null if none was found
+     * @param proven true if the path is a shortest one, or if there is no path and no solution exists
+     * @param beamWidth the beam width of the round that found the result
+     * @param rounds the number of rounds run so far
+     * @param elapsedMillis the time since the search started
+     */
+    public AnytimeResult(List<String> path, boolean proven, int beamWidth, int rounds, long elapsedMillis){
+        this.path = path;
+        this.proven = proven;
+        this.beamWidth = beamWidth;
+        this.rounds = rounds;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /** getters for private values */
+    public List<String> getPath() {
+        return this.path;
+    }
+
+    public boolean isProven() {
+        return this.proven;
+    }
+
+    public int getBeamWidth() {
+        return this.beamWidth;
+    }
+
+    public int getRounds() {
+        return this.rounds;
+    }
+
+    public long getElapsedMillis() {
+        return this.elapsedMillis;
+    }
+
+    /**
+     * @return the number of moves in the path, or -1 if there is none
+     */
+    public int getMoves() {
+        return this.path == null ? -1 : this.path.size() - 1;
+    }
+
+    /**
+     * @return the result as a readable string, such as "heuristic solution in 9 moves"
+     */
+    @Override
+    public String toString() {
+        String found;
+        if (this.path != null){
+            found = (this.proven ? "proven" : "heuristic") + " solution in " + getMoves() + " moves";
+        } else if (this.proven){
+            found = "proven no solution";
+        } else {
+            found = "no solution found";
+        }
+        return found + " (beam width " + this.beamWidth + ", round " + this.rounds + ", "
+                + this.elapsedMillis + " ms)";
+    }
+}
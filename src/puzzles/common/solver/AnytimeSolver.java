@@ -0,0 +1,188 @@
+package puzzles.common.solver;
+
+import puzzles.common.Observer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * This class searches boards too big for an exact breadth-first search. It runs a beam
+ * search: level by level, like Solver, but only the configurations a heuristic scores best
+ * are kept at each level, so a level never holds more than the beam width. Lower scores are
+ * better.
+ *
+ * The first solution found is reported right away. After that, the search runs again with
+ * twice the beam width, looking only for shorter solutions, until the time runs out or a
+ * round keeps every configuration. A round that never cut a level is an exact search, so
+ * its result is proven: the path is a shortest one, or there is no solution at all. When
+ * the caller knows a lower bound on the number of moves, a solution that reaches it is
+ * proven too, and the search stops there.
+ * @author Jake Edelstein
+ */
+public class AnytimeSolver {
+    /** how many configurations to expand between checks of the time */
+    private static final int CHECK_EVERY = 256;
+
+    private final int beamWidth;
+    private final ToIntFunction<Configuration> heuristic;
+    /** no solution takes fewer moves than this */
+    private final int minMoves;
+
+    /**
+     * @param beamWidth the beam width of the first round
+     * @param heuristic scores a configuration, lower scores are kept first
+     */
+    public AnytimeSolver(int beamWidth, ToIntFunction<Configuration> heuristic){
+        this(beamWidth, heuristic, 0);
+    }
+
+    /**
+     * @param beamWidth the beam width of the first round
+     * @param heuristic scores a configuration, lower scores are kept first
+     * @param minMoves a lower bound on the moves of any solution, so one that short is proven
+     */
+    public AnytimeSolver(int beamWidth, ToIntFunction<Configuration> heuristic, int minMoves){
+        if (beamWidth < 1){
+            throw new IllegalArgumentException("Beam width must be at least 1");
+        }
+        this.beamWidth = beamWidth;
+        this.heuristic = heuristic;
+        this.minMoves = minMoves;
+    }
+
+    /**
+     * Search for the shortest solution that can be found in the time
+     * @param start the starting configuration
+     * @param timeLimitMillis the longest the search may run, or 0 to run until the result is proven
+     * @param listener told about every better result as soon as it is found, may be null
+     * @return the best result found
+     */
+    public AnytimeResult solve(Configuration start, long timeLimitMillis,
+                               Observer<AnytimeSolver, AnytimeResult> listener){
+        long started = System.nanoTime();
+        long deadline = timeLimitMillis > 0 ? started + timeLimitMillis * 1_000_000 : Long.MAX_VALUE;
+        AnytimeResult best = null;
+        int width = this.beamWidth;
+        int rounds = 0;
+        while (true){
+            rounds++;
+            int limit = best == null ? Integer.MAX_VALUE : best.getMoves();
+            Round round = beam(start, width, limit, deadline);
+            long elapsed = (System.nanoTime() - started) / 1_000_000;
+            if (round.path != null){
+                boolean proven = !round.pruned || round.path.size() - 1 <= this.minMoves;
+                best = new AnytimeResult(round.path, proven, width, rounds, elapsed);
+                if (listener != null){
+                    listener.update(this, best);
+                }
+            } else if (!round.stopped && !round.pruned){
+                // an exact search found nothing shorter than the best, or nothing at all
+                best = new AnytimeResult(best == null ? null : best.getPath(), true, width, rounds, elapsed);
+                if (listener != null){
+                    listener.update(this, best);
+                }
+            }
+            if (round.stopped || best != null && best.isProven()){
+                break;
+            }
+            width = width > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : width * 2;
+        }
+        if (best == null){
+            best = new AnytimeResult(null, false, width, rounds, (System.nanoTime() - started) / 1_000_000);
+        }
+        return best;
+    }
+
+    /**
+     * What one round of beam search found
+     */
+    private static class Round {
+        /** the path to the goal, or null if none was found */
+        private List<String> path;
+        /** true if any level was cut down to the beam width */
+        private boolean pruned;
+        /** true if the time ran out */
+        private boolean stopped;
+    }
+
+    /**
+     * Run one round of beam search
+     * @param start the starting configuration
+     * @param width the most configurations kept at each level
+     * @param limit only goals fewer moves away than this are looked for
+     * @param deadline when the time runs out, from System.nanoTime()
+     * @return what the round found
+     */
+    private Round beam(Configuration start, int width, int limit, long deadline){
+        Round round = new Round();
+        HashMap<Configuration, Configuration> predecessors = new HashMap<>();
+        predecessors.put(start, start);
+        List<Configuration> level = List.of(start);
+        int expanded = 0;
+        for (int depth = 0; depth < limit && !level.isEmpty(); depth++){
+            List<Configuration> next = new ArrayList<>();
+            for (Configuration current : level){
+                if (current.isSolution()){
+                    round.path = buildPath(predecessors, start, current);
+                    return round;
+                }
+                if (++expanded % CHECK_EVERY == 0 && System.nanoTime() - deadline > 0){
+                    round.stopped = true;
+                    return round;
+                }
+                for (Configuration neighbor : current.getNeighbors()){
+                    if (!predecessors.containsKey(neighbor)){
+                        predecessors.put(neighbor, current);
+                        Solver.uniqueConfigs++;
+                        next.add(neighbor);
+                    }
+                }
+            }
+            if (next.size() > width){
+                next = best(next, width);
+                round.pruned = true;
+            }
+            level = next;
+        }
+        return round;
+    }
+
+    /**
+     * Keep the configurations with the lowest scores, ties kept in the order they were found
+     * @param level the configurations
+     * @param width how many to keep
+     * @return the ones kept
+     */
+    private List<Configuration> best(List<Configuration> level, int width){
+        // the score in the high half and the index in the low half, so one sort orders both
+        long[] keys = new long[level.size()];
+        for (int i = 0; i < keys.length; i++){
+            keys[i] = (long) this.heuristic.applyAsInt(level.get(i)) << 32 | i;
+        }
+        Arrays.sort(keys);
+        List<Configuration> kept = new ArrayList<>(width);
+        for (int i = 0; i < width; i++){
+            kept.add(level.get((int) keys[i]));
+        }
+        return kept;
+    }
+
+    /**
+     * @return the path from the start to the end as strings
+     */
+    private static List<String> buildPath(HashMap<Configuration, Configuration> predecessors,
+                                          Configuration start, Configuration end){
+        LinkedList<String> path = new LinkedList<>();
+        Configuration current = end;
+        while (current != start){
+            path.addFirst(current.toString());
+            current = predecessors.get(current);
+        }
+        path.addFirst(start.toString());
+        return path;
+    }
+}
@@ -0,0 +1,182 @@
+package puzzles.common.solver;
+
+import puzzles.common.Observer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class runs searches in the background so callers can wait for an answer with a
+ * time limit, a state limit, and a memory limit instead of blocking until the search is done.
+ *
+ * Every solve returns a SolveFuture. A search that hits a limit still completes normally
+ * with a SolveResult describing how far it got. There are two ways to stop one early:
+ * requestStop() interrupts the search, which stops at its next budget check and completes
+ * the future with a CANCELLED result holding the partial path, while cancel() works like
+ * any other future's, completing it at once with a CancellationException and interrupting
+ * the search so it doesn't keep running for nobody.
+ * @author Jake Edelstein
+ */
+public class AsyncSolver {
+    /** the default time between progress snapshots */
+    private static final long PROGRESS_INTERVAL = 100;
+
+    private final ExecutorService executor;
+
+    /**
+     * Create an async solver that runs each search on its own daemon thread
+     */
+    public AsyncSolver(){
+        this(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "solver");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Create an async solver that runs searches on the given executor
+     * @param executor the executor
+     */
+    public AsyncSolver(ExecutorService executor){
+        this.executor = executor;
+    }
+
+    /**
+     * Solve for an explicit end configuration in the background
+     * @param start the starting configuration
+     * @param end the end configuration
+     * @param budget the limits of the search
+     * @param listener gets progress snapshots, may be null
+     * @return the future result
+     */
+    public SolveFuture solve(Configuration start, Configuration end, SolveBudget budget,
+                             Observer<Solver, SolveProgress> listener){
+        return submit(start, end, budget, listener);
+    }
+
+    /**
+     * Solve for any configuration that is a solution in the background
+     * @param start the starting configuration
+     * @param budget the limits of the search
+     * @param listener gets progress snapshots, may be null
+     * @return the future result
+     */
+    public SolveFuture solve(Configuration start, SolveBudget budget,
+                             Observer<Solver, SolveProgress> listener){
+        return submit(start, null, budget, listener);
+    }
+
+    /**
+     * Start a search on the executor
+     * @param start the starting configuration
+     * @param end the end configuration, or null to stop at any solution
+     * @param budget the limits of the search
+     * @param listener gets progress snapshots, may be null
+     * @return the future result
+     */
+    private SolveFuture submit(Configuration start, Configuration end, SolveBudget budget,
+                               Observer<Solver, SolveProgress> listener){
+        SolveFuture future = new SolveFuture();
+        this.executor.execute(() -> {
+            boolean cancelled;
+            synchronized (future){
+                future.worker = Thread.currentThread();
+                cancelled = future.stopRequested;
+            }
+            try {
+                // the search may have been stopped before it started
+                if (cancelled){
+                    future.complete(new SolveResult(SolveStatus.CANCELLED, null, null,
+                            new SolveProgress(0, 0, 0, 0, 0)));
+                } else {
+                    future.complete(run(start, end, budget, listener));
+                }
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                synchronized (future){
+                    future.worker = null;
+                }
+                // don't let a cancellation leak into the next task on this thread
+                Thread.interrupted();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Run one search on the current thread
+     */
+    private static SolveResult run(Configuration start, Configuration end, SolveBudget budget,
+                                   Observer<Solver, SolveProgress> listener){
+        Solver solver = new Solver();
+        solver.setBudget(budget);
+        if (listener != null){
+            solver.setProgressListener(listener, PROGRESS_INTERVAL);
+        }
+        List<String> path;
+        if (end == null){
+            HashMap<Configuration, Configuration> predecessors = solver.findSolution(start);
+            path = solver.buildPath(predecessors, start, solver.getEndConfig());
+        } else {
+            HashMap<Configuration, Configuration> predecessors = solver.findSolution(start, end);
+            path = solver.buildPath(predecessors, start, end);
+        }
+        return new SolveResult(solver.getStatus(), path, solver.getPartialPath(), solver.getLastProgress());
+    }
+
+    /**
+     * Stop accepting new searches and interrupt the running ones
+     */
+    public void shutdown(){
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * The future result of a search, which can be stopped early for a partial result
+     */
+    public static class SolveFuture extends CompletableFuture<SolveResult> {
+        /** the thread running the search, or null if it has not started or has finished */
+        private Thread worker;
+        private boolean stopRequested = false;
+
+        /**
+         * Stop the search at its next budget check. The future then completes with a
+         * CANCELLED result describing how far the search got.
+         * @return false if the future was already done
+         */
+        public synchronized boolean requestStop(){
+            if (isDone()){
+                return false;
+            }
+            this.stopRequested = true;
+            if (this.worker != null){
+                this.worker.interrupt();
+            }
+            return true;
+        }
+
+        /**
+         * Cancel the future, so get() and join() throw CancellationException, and stop the search
+         * @param mayInterruptIfRunning ignored, the search is always stopped
+         * @return true if this call cancelled the future
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled){
+                synchronized (this){
+                    this.stopRequested = true;
+                    if (this.worker != null){
+                        this.worker.interrupt();
+                    }
+                }
+            }
+            return cancelled;
+        }
+    }
+}
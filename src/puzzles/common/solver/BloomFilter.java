@@ -0,0 +1,104 @@
+package puzzles.common.solver;
+
+/**
+ * This class is a Bloom filter of configurations. It never forgets a configuration that was
+ * added, but may wrongly say a configuration was added when it wasn't. The chance of that
+ * depends on how full it is, so it is sized from the number of configurations expected and
+ * the false positive rate wanted at that size, and reports its actual rate as it fills.
+ *
+ * Configurations that can be encoded are hashed by their records, and the rest by hashCode(),
+ * which can only tell about 4 billion configurations apart.
+ * @author Jake Edelstein
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final long numBits;
+    private final int numHashes;
+    private long added = 0;
+
+    /**
+     * Size a filter for a number of configurations and a false positive rate
+     * @param expected the number of configurations expected
+     * @param falsePositiveRate the false positive rate wanted once that many are added
+     */
+    public BloomFilter(long expected, double falsePositiveRate){
+        if (expected <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1){
+            throw new IllegalArgumentException("Need expected > 0 and 0 < rate < 1");
+        }
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.bits = new long[(int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64)];
+        this.numBits = this.bits.length * 64L;
+        this.numHashes = Math.max(1, (int) Math.round((double) this.numBits / expected * ln2));
+    }
+
+    /**
+     * Add a configuration
+     * @param config the configuration
+     * @return true if it may have been added before, false if it definitely wasn't
+     */
+    public boolean add(Configuration config){
+        long h1 = hash(config);
+        long h2 = mix(h1) | 1;
+        boolean seen = true;
+        for (int i = 0; i < this.numHashes; i++){
+            long bit = Long.remainderUnsigned(h1 + i * h2, this.numBits);
+            long word = this.bits[(int) (bit >>> 6)];
+            long mask = 1L << bit;
+            if ((word & mask) == 0){
+                seen = false;
+                this.bits[(int) (bit >>> 6)] = word | mask;
+            }
+        }
+        if (!seen){
+            this.added++;
+        }
+        return seen;
+    }
+
+    /**
+     * @return the chance that a configuration not yet added is reported as added, at the current fill
+     */
+    public double falsePositiveRate(){
+        return Math.pow(1 - Math.exp(-(double) this.numHashes * this.added / this.numBits), this.numHashes);
+    }
+
+    /**
+     * @return a 64 bit hash of a configuration
+     */
+    private static long hash(Configuration config){
+        if (config instanceof EncodableConfiguration){
+            long h = 0xCBF29CE484222325L;
+            for (byte b : ((EncodableConfiguration) config).encode()){
+                h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+            }
+            return mix(h);
+        }
+        return mix(config.hashCode());
+    }
+
+    /**
+     * @return the bits of a value spread over the whole long
+     */
+    private static long mix(long h){
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /** getters for private values */
+    public long getNumBits() {
+        return this.numBits;
+    }
+
+    public int getNumHashes() {
+        return this.numHashes;
+    }
+
+    /**
+     * @return the number of configurations the filter said were new
+     */
+    public long getAdded() {
+        return this.added;
+    }
+}
@@ -0,0 +1,179 @@
+package puzzles.common.solver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * This class writes and reads the checkpoints of a breadth-first search in Solver.
+ *
+ * A checkpoint file holds the statistics, every visited configuration with the index of
+ * its predecessor, and the frontier as indexes into the visited configurations, in queue
+ * order. Restoring it gives back the exact same search, so the resumed solve finds the
+ * same path. Configurations are stored with EncodableConfiguration, and indexes are
+ * written as variable-length integers.
+ *
+ * Checkpoints are skipped whenever writing one would push the time spent on checkpoints
+ * past the allowed fraction of the time spent solving.
+ * @author Jake Edelstein
+ */
+class Checkpoint {
+    /** marks the start of a checkpoint file */
+    private static final int MAGIC = 0x42465343;
+    /** the version of the file layout */
+    private static final int VERSION = 1;
+    /** how many expanded configurations pass between looks at the clock */
+    private static final int CHECK_EVERY = 1024;
+    /** assumed cost of writing one configuration before the first checkpoint is timed */
+    private static final long FIRST_GUESS_NANOS = 200;
+
+    private final Path file;
+    private final long intervalNanos;
+    private final double maxFraction;
+    /** solve time carried over from the run that wrote the restored checkpoint */
+    private long earlierNanos = 0;
+    private final long startedAt = System.nanoTime();
+    private long lastWrite = System.nanoTime();
+    private long lastDuration = 0;
+    private long lastSize = 0;
+    private long spentNanos = 0;
+    private int calls = 0;
+
+    /**
+     * @param file the checkpoint file
+     * @param intervalMillis the shortest time between two checkpoints
+     * @param maxFraction the largest fraction of the solve time that may be spent writing checkpoints
+     */
+    Checkpoint(Path file, long intervalMillis, double maxFraction){
+        this.file = file;
+        this.intervalNanos = intervalMillis * 1_000_000;
+        this.maxFraction = maxFraction;
+    }
+
+    /**
+     * Write a checkpoint if the interval has passed and there is room in the time budget
+     * @param start the starting configuration
+     * @param queue the frontier
+     * @param predecessors the visited configurations and their predecessors
+     */
+    void maybeWrite(Configuration start, LinkedList<Configuration> queue,
+                    Map<Configuration, Configuration> predecessors){
+        if (++this.calls % CHECK_EVERY != 0){
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - this.lastWrite < this.intervalNanos){
+            return;
+        }
+        // guess the cost from the last checkpoint, scaled by how much the search has grown
+        long estimate = this.lastSize == 0 ? predecessors.size() * FIRST_GUESS_NANOS
+                : this.lastDuration * predecessors.size() / this.lastSize;
+        long solveNanos = this.earlierNanos + now - this.startedAt;
+        if (this.spentNanos + estimate > this.maxFraction * solveNanos){
+            return;
+        }
+        try {
+            write((EncodableConfiguration) start, queue, predecessors, solveNanos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.lastWrite = System.nanoTime();
+        this.lastDuration = this.lastWrite - now;
+        this.lastSize = predecessors.size();
+        this.spentNanos += this.lastDuration;
+    }
+
+    /**
+     * Write the whole search to a temporary file, then move it over the checkpoint file
+     * so a crash in the middle never leaves a broken checkpoint behind
+     */
+    private void write(EncodableConfiguration start, LinkedList<Configuration> queue,
+                       Map<Configuration, Configuration> predecessors, long solveNanos) throws IOException {
+        Path tmp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        HashMap<Configuration, Integer> indexes = new HashMap<>();
+        for (Configuration c : predecessors.keySet()){
+            indexes.put(c, indexes.size());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(Solver.totalConfigs);
+            out.writeInt(Solver.uniqueConfigs);
+            out.writeLong(solveNanos);
+            byte[] startRecord = start.encode();
+            out.writeInt(startRecord.length);
+            out.write(startRecord);
+            VarInt.write(out, predecessors.size());
+            for (Map.Entry<Configuration, Configuration> entry : predecessors.entrySet()){
+                out.write(((EncodableConfiguration) entry.getKey()).encode());
+                VarInt.write(out, indexes.get(entry.getValue()));
+            }
+            VarInt.write(out, queue.size());
+            for (Configuration c : queue){
+                VarInt.write(out, indexes.get(c));
+            }
+        }
+        Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Fill in the frontier and the visited configurations from the checkpoint file
+     * @param start the starting configuration
+     * @param queue the empty frontier to fill
+     * @param predecessors the empty predecessors list to fill
+     * @return false if there is no checkpoint for this starting configuration
+     */
+    boolean restore(Configuration start, LinkedList<Configuration> queue,
+                    Map<Configuration, Configuration> predecessors){
+        if (!Files.exists(this.file)){
+            return false;
+        }
+        EncodableConfiguration template = (EncodableConfiguration) start;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file)))){
+            if (in.readInt() != MAGIC || in.readInt() != VERSION){
+                return false;
+            }
+            int totalConfigs = in.readInt();
+            int uniqueConfigs = in.readInt();
+            long solveNanos = in.readLong();
+            byte[] startRecord = new byte[in.readInt()];
+            in.readFully(startRecord);
+            if (!Arrays.equals(startRecord, template.encode())){
+                return false;
+            }
+            int size = VarInt.read(in);
+            Configuration[] configs = new Configuration[size];
+            int[] parents = new int[size];
+            byte[] record = new byte[startRecord.length];
+            for (int i = 0; i < size; i++){
+                in.readFully(record);
+                // keep the caller's start, since buildPath stops when it reaches that object
+                configs[i] = Arrays.equals(record, startRecord) ? start : template.decode(record);
+                parents[i] = VarInt.read(in);
+            }
+            for (int i = 0; i < size; i++){
+                predecessors.put(configs[i], configs[parents[i]]);
+            }
+            int frontier = VarInt.read(in);
+            for (int i = 0; i < frontier; i++){
+                queue.add(configs[VarInt.read(in)]);
+            }
+            Solver.totalConfigs = totalConfigs;
+            Solver.uniqueConfigs = uniqueConfigs;
+            this.earlierNanos = solveNanos;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
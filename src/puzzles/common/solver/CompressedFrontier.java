@@ -0,0 +1,274 @@
+package puzzles.common.solver;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * This class is a frontier for a breadth-first search that keeps configurations as encoded
+ * records instead of objects. Records are added to a small buffer, and every full buffer is
+ * sorted and packed into a chunk: the first record whole, then each record as the number of
+ * leading bytes it shares with the one before it, written as a variable-length integer,
+ * followed by the bytes that differ.
+ *
+ * Before the frontier is first read, the sorted chunks are merged into one run sorted over
+ * the whole level, dropping any record added twice, and packed again. Records next to each
+ * other in the whole level share far longer prefixes than ones in a single chunk, so the
+ * merged run usually takes a few bytes per record instead of a list node and an object.
+ * The merge holds the old chunks until it is done, so it briefly needs twice the space.
+ *
+ * Chunks can be kept off the heap in direct buffers. Configurations are read back in sorted
+ * order by decoding them with the template. The decoded configurations are new objects,
+ * equal to the ones that were added.
+ * @author Jake Edelstein
+ */
+public class CompressedFrontier extends AbstractCollection<Configuration> {
+    /** the number of records sorted and packed together */
+    private static final int CHUNK_RECORDS = 4096;
+
+    private final EncodableConfiguration template;
+    private final boolean offHeap;
+    private final int recordLength;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final List<Integer> chunkSizes = new ArrayList<>();
+    /** how many of the first chunks already form one sorted run */
+    private int mergedChunks = 0;
+    /** records added since the last chunk was packed */
+    private byte[][] pending = new byte[CHUNK_RECORDS][];
+    private int pendingSize = 0;
+    /** the packed bytes of the chunk being written, reused for every chunk */
+    private final byte[] packing;
+    private int packingAt = 0;
+    private int packingCount = 0;
+    /** the last record packed into the chunk being written */
+    private final byte[] previous;
+    private int size = 0;
+    private long packedBytes = 0;
+
+    /**
+     * Create an empty frontier
+     * @param template any configuration of the puzzle, used to decode records
+     * @param offHeap true to keep the chunks in direct buffers outside the heap
+     */
+    public CompressedFrontier(EncodableConfiguration template, boolean offHeap){
+        this.template = template;
+        this.offHeap = offHeap;
+        this.recordLength = template.encode().length;
+        // the worst case is no shared prefixes, plus up to 5 bytes of length for each record
+        this.packing = new byte[CHUNK_RECORDS * (this.recordLength + 5)];
+        this.previous = new byte[this.recordLength];
+    }
+
+    /**
+     * Add a configuration to the end of the frontier
+     * @param config an encodable configuration of the same puzzle as the template
+     * @return true
+     */
+    @Override
+    public boolean add(Configuration config){
+        this.pending[this.pendingSize++] = ((EncodableConfiguration) config).encode();
+        this.size++;
+        if (this.pendingSize == CHUNK_RECORDS){
+            pack();
+        }
+        return true;
+    }
+
+    /**
+     * Sort the pending records and pack them into a new chunk, dropping records added twice
+     */
+    private void pack(){
+        Arrays.sort(this.pending, 0, this.pendingSize, Arrays::compareUnsigned);
+        byte[] last = null;
+        for (int i = 0; i < this.pendingSize; i++){
+            byte[] record = this.pending[i];
+            if (last != null && Arrays.equals(last, record)){
+                this.size--;
+            } else {
+                packRecord(record);
+            }
+            last = record;
+            this.pending[i] = null;
+        }
+        finishChunk();
+        this.pendingSize = 0;
+    }
+
+    /**
+     * Add a record to the chunk being written, finishing the chunk when it is full
+     * @param record the record, which must not sort before the one packed last
+     */
+    private void packRecord(byte[] record){
+        int shared = 0;
+        if (this.packingCount > 0){
+            int mismatch = Arrays.mismatch(this.previous, record);
+            shared = mismatch < 0 ? this.recordLength : mismatch;
+        }
+        this.packingAt = VarInt.write(this.packing, this.packingAt, shared);
+        System.arraycopy(record, shared, this.packing, this.packingAt, this.recordLength - shared);
+        this.packingAt += this.recordLength - shared;
+        System.arraycopy(record, 0, this.previous, 0, this.recordLength);
+        if (++this.packingCount == CHUNK_RECORDS){
+            finishChunk();
+        }
+    }
+
+    /**
+     * Copy the chunk being written into its own buffer
+     */
+    private void finishChunk(){
+        if (this.packingCount == 0){
+            return;
+        }
+        int at = this.packingAt;
+        ByteBuffer chunk = this.offHeap ? ByteBuffer.allocateDirect(at) : ByteBuffer.allocate(at);
+        chunk.put(this.packing, 0, at).flip();
+        this.chunks.add(chunk);
+        this.chunkSizes.add(this.packingCount);
+        this.packedBytes += at;
+        this.packingAt = 0;
+        this.packingCount = 0;
+    }
+
+    /**
+     * Merge the sorted run and the chunks packed after it into one sorted run, dropping
+     * records that were added more than once
+     */
+    private void merge(){
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>((a, b) -> Arrays.compareUnsigned(a.record, b.record));
+        if (this.mergedChunks > 0){
+            addCursor(cursors, new Cursor(this.chunks.subList(0, this.mergedChunks),
+                    this.chunkSizes.subList(0, this.mergedChunks)));
+        }
+        for (int i = this.mergedChunks; i < this.chunks.size(); i++){
+            addCursor(cursors, new Cursor(this.chunks.subList(i, i + 1), this.chunkSizes.subList(i, i + 1)));
+        }
+        // the cursors keep copies of the lists, so these can be refilled
+        this.chunks.clear();
+        this.chunkSizes.clear();
+        this.packedBytes = 0;
+        this.size = 0;
+        while (!cursors.isEmpty()){
+            Cursor cursor = cursors.poll();
+            if (this.size == 0 || !Arrays.equals(this.previous, cursor.record)){
+                packRecord(cursor.record);
+                this.size++;
+            }
+            addCursor(cursors, cursor);
+        }
+        finishChunk();
+        this.mergedChunks = this.chunks.size();
+    }
+
+    /**
+     * Move a cursor to its next record and queue it, unless it has run out
+     */
+    private static void addCursor(PriorityQueue<Cursor> cursors, Cursor cursor){
+        if (cursor.hasNext()){
+            cursor.next();
+            cursors.add(cursor);
+        }
+    }
+
+    /**
+     * Reads the records of consecutive chunks in order, one at a time into the same array
+     */
+    private class Cursor {
+        private final List<ByteBuffer> buffers;
+        private final List<Integer> counts;
+        private int chunk = 0;
+        private int leftInChunk = 0;
+        private ByteBuffer buffer = null;
+        /** the record read last */
+        private final byte[] record = new byte[recordLength];
+
+        Cursor(List<ByteBuffer> buffers, List<Integer> counts){
+            this.buffers = new ArrayList<>(buffers);
+            this.counts = new ArrayList<>(counts);
+        }
+
+        boolean hasNext(){
+            return this.leftInChunk > 0 || this.chunk < this.buffers.size();
+        }
+
+        /**
+         * Read the next record into the record array
+         */
+        void next(){
+            if (this.leftInChunk == 0){
+                if (this.chunk == this.buffers.size()){
+                    throw new NoSuchElementException();
+                }
+                this.buffer = this.buffers.get(this.chunk).duplicate();
+                this.leftInChunk = this.counts.get(this.chunk);
+                this.chunk++;
+            }
+            // the shared prefix is already in the record from the one before
+            int shared = VarInt.read(this.buffer);
+            this.buffer.get(this.record, shared, recordLength - shared);
+            this.leftInChunk--;
+        }
+    }
+
+    /**
+     * Iterate over the configurations in sorted order, decoding each one as it is reached.
+     * The frontier must not be added to while iterating.
+     * @return the iterator
+     */
+    @Override
+    public Iterator<Configuration> iterator(){
+        if (this.pendingSize > 0){
+            pack();
+        }
+        if (this.chunks.size() > 1 && this.mergedChunks < this.chunks.size()){
+            merge();
+        }
+        Cursor cursor = new Cursor(this.chunks, this.chunkSizes);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public Configuration next() {
+                cursor.next();
+                return template.decode(cursor.record);
+            }
+        };
+    }
+
+    /**
+     * @return the number of configurations added, less any added twice once they are merged
+     */
+    @Override
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * Remove every configuration
+     */
+    @Override
+    public void clear(){
+        this.chunks.clear();
+        this.chunkSizes.clear();
+        this.mergedChunks = 0;
+        Arrays.fill(this.pending, 0, this.pendingSize, null);
+        this.pendingSize = 0;
+        this.size = 0;
+        this.packedBytes = 0;
+    }
+
+    /**
+     * @return the bytes used by the packed chunks
+     */
+    public long getPackedBytes(){
+        return this.packedBytes;
+    }
+}
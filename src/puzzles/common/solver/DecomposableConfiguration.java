@@ -0,0 +1,26 @@
+package puzzles.common.solver;
+
+import java.util.List;
+
+/**
+ * A configuration made of independent parts, where every move changes exactly one part
+ * and no move depends on the other parts. Each part can then be solved on its own, and a
+ * shortest path for the whole is a shortest path for each part, one part after another.
+ * DecomposingSolver solves configurations like this.
+ * @author Jake Edelstein
+ */
+public interface DecomposableConfiguration extends Configuration {
+    /**
+     * Splits this configuration into its parts. Each part is a configuration whose
+     * isSolution() says whether that part is solved.
+     * @return the parts, in order
+     */
+    List<Configuration> decompose();
+
+    /**
+     * Rebuilds a whole configuration of the same puzzle from one configuration of each part
+     * @param parts the parts, in the same order as decompose()
+     * @return the whole configuration
+     */
+    Configuration compose(List<Configuration> parts);
+}
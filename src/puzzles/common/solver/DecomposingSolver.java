@@ -0,0 +1,70 @@
+package puzzles.common.solver;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * This class solves a DecomposableConfiguration one part at a time instead of searching
+ * every combination of the parts. Each part gets its own breadth-first search, and the
+ * searches run in parallel. Since each move only changes one part, the shortest paths of
+ * the parts are joined into a shortest path for the whole by making all the moves of the
+ * first part, then all the moves of the second, and so on.
+ *
+ * The counters in Solver are shared by every search, so they may miss a few configurations
+ * when parts are solved at the same time.
+ * @author Jake Edelstein
+ */
+public class DecomposingSolver {
+    private final ForkJoinPool pool;
+
+    /**
+     * @param pool the pool the parts are solved on
+     */
+    public DecomposingSolver(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * Create a solver that uses the common pool, which has a thread for every processor
+     */
+    public DecomposingSolver(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Solve every part and join their paths
+     * @param start the starting configuration
+     * @return a shortest path from the start to a solution, or null if any part can't be solved
+     */
+    public List<String> solve(DecomposableConfiguration start){
+        List<Configuration> parts = start.decompose();
+        List<List<Configuration>> partPaths = this.pool.submit(() -> parts.parallelStream()
+                .map(DecomposingSolver::solvePart).collect(Collectors.toList())).join();
+        if (partPaths.contains(null)){
+            return null;
+        }
+        // make the moves of each part in turn, keeping the other parts where they are
+        List<String> path = new LinkedList<>();
+        path.add(start.toString());
+        List<Configuration> current = new ArrayList<>(parts);
+        for (int i = 0; i < parts.size(); i++){
+            List<Configuration> partPath = partPaths.get(i);
+            for (int step = 1; step < partPath.size(); step++){
+                current.set(i, partPath.get(step));
+                path.add(start.compose(current).toString());
+            }
+        }
+        return path;
+    }
+
+    /**
+     * @return a shortest path from the part to a solved part, or null if there is none
+     */
+    private static List<Configuration> solvePart(Configuration part){
+        Solver solver = new Solver();
+        return solver.buildConfigPath(solver.findSolution(part), part, solver.getEndConfig());
+    }
+}
@@ -0,0 +1,27 @@
+package puzzles.common.solver;
+
+/**
+ * A configuration that can be packed into a fixed-width record of bytes and
+ * rebuilt from one. Solvers that keep states outside of the heap (on disk,
+ * in compressed buffers, in checkpoints) only work with configurations that
+ * implement this interface.
+ * @author Jake Edelstein
+ */
+public interface EncodableConfiguration extends Configuration {
+    /**
+     * Packs this configuration into bytes. Every configuration reachable from
+     * the same starting configuration must produce a record of the same length,
+     * and two configurations must produce the same bytes exactly when they are equal.
+     * @return the packed record
+     */
+    byte[] encode();
+
+    /**
+     * Rebuilds a configuration from a record made by encode(). This configuration
+     * is used as a template for anything not stored in the record, such as the
+     * dimensions of a board or the goal of the puzzle.
+     * @param record the packed record
+     * @return the configuration stored in the record
+     */
+    EncodableConfiguration decode(byte[] record);
+}
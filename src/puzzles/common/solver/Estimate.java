@@ -0,0 +1,84 @@
+package puzzles.common.solver;
+
+/**
+ * The outcome of an exploration by ProbabilisticSolver. Reaching a goal proves the puzzle is
+ * solvable, but the Bloom filter may have wrongly skipped configurations, so a missing goal
+ * only means it is probably unsolvable, and the depth and state count are estimates.
+ * @author Jake Edelstein
+ */
+public class Estimate {
+    /** fewer wrongly skipped configurations than this are expected is as good as none */
+    private static final double NEGLIGIBLE_MISSED = 0.01;
+
+    private final boolean solvable;
+    private final int depth;
+    private final long states;
+    private final double falsePositiveRate;
+    private final double expectedMissed;
+    private final long skipped;
+
+    /**
+     * @param solvable true if a goal was reached
+     * @param depth the depth of the goal, or of the deepest configuration if there was none
+     * @param states the configurations the filter counted as new
+     * @param falsePositiveRate the filter's false positive rate when the exploration ended
+     * @param expectedMissed the most new configurations expected to have been wrongly skipped
+     * @param skipped the configurations skipped because the filter said they were seen
+     */
+    public Estimate(boolean solvable, int depth, long states, double falsePositiveRate,
+                    double expectedMissed, long skipped){
+        this.solvable = solvable;
+        this.depth = depth;
+        this.states = states;
+        this.falsePositiveRate = falsePositiveRate;
+        this.expectedMissed = expectedMissed;
+        this.skipped = skipped;
+    }
+
+    /** getters for private values */
+    public boolean isSolvable() {
+        return this.solvable;
+    }
+
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public long getStates() {
+        return this.states;
+    }
+
+    public double getFalsePositiveRate() {
+        return this.falsePositiveRate;
+    }
+
+    public double getExpectedMissed() {
+        return this.expectedMissed;
+    }
+
+    public long getSkipped() {
+        return this.skipped;
+    }
+
+    /**
+     * Most skipped configurations are real revisits, so only the ones the filter is expected
+     * to have skipped wrongly, its false positive rate summed over every lookup, count here.
+     * @return true if no goal was reached but a wrongly skipped configuration may have led to one
+     */
+    public boolean isPossiblyMissed() {
+        return !this.solvable && this.expectedMissed >= NEGLIGIBLE_MISSED;
+    }
+
+    /**
+     * @return the outcome as a readable string
+     */
+    @Override
+    public String toString() {
+        String outcome = this.solvable ? "solvable in at most " + this.depth + " moves"
+                : isPossiblyMissed() ? "possibly missed, no solution within " + this.depth + " moves"
+                : "no solution";
+        return outcome + ", about " + this.states + " states (false positive rate "
+                + String.format("%.2g", this.falsePositiveRate) + ", at most "
+                + String.format("%.1f", this.expectedMissed) + " states expected missed)";
+    }
+}
@@ -0,0 +1,618 @@
+package puzzles.common.solver;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * This class implements a breadth-first search that keeps its layers on disk instead of
+ * in the heap, so it can solve puzzles with more states than fit in memory.
+ *
+ * Every layer of the search is a file of fixed-width records sorted by state, where each
+ * record is an encoded configuration followed by the long index of its parent in the previous
+ * layer. Next to the layers is a visited file, the sorted states of every layer so far. The
+ * next layer is built by expanding a layer into sorted runs that each fit in the RAM budget,
+ * then merging the runs while dropping duplicates and anything in the visited file, which is
+ * rewritten with the new states in the same pass. So each layer reads the states found so far
+ * once, rather than once per earlier layer. Files are read and written through memory-mapped
+ * windows.
+ *
+ * The work directory is restartable: a progress file records the last finished layer and
+ * how many configurations had been made by then, so running the same puzzle against the
+ * same directory continues where it stopped with the same counts.
+ * @author Jake Edelstein
+ */
+public class ExternalSolver {
+    /** the largest part of a layer file that is mapped at once */
+    private static final long WINDOW_SIZE = 64L << 20;
+    /** parent index stored for the starting configuration */
+    private static final long NO_PARENT = -1;
+    /** the bytes at the end of a record that hold its parent index */
+    private static final int PARENT_SIZE = Long.BYTES;
+    /** file system types that are not local disks */
+    private static final Set<String> REMOTE_FILE_SYSTEMS =
+            Set.of("nfs", "nfs4", "cifs", "smb", "smb3", "smbfs", "afs", "9p", "fuse.sshfs");
+    /** name of the file recording the last finished layer */
+    private static final String PROGRESS_FILE = "progress";
+
+    /** the largest fraction of the heap the records of a run may take */
+    private static final double MAX_HEAP_FRACTION = 0.25;
+    /** the size the record buffer starts at before it grows */
+    private static final int INITIAL_BUFFER = 1 << 16;
+
+    private final Path workDir;
+    private final long ramBudget;
+    /** the buffer runs are collected in, grown as records arrive and kept for the next layer */
+    private byte[] arena = new byte[0];
+
+    /**
+     * Create a solver that works in the given directory
+     * @param workDir the directory for layer files, must be on a local disk
+     * @param ramBudget how many bytes of states may be held in memory while building a layer,
+     *                  which is lowered to a quarter of the largest heap if it is more
+     * @throws IOException if the directory can't be created or isn't on a local disk
+     */
+    public ExternalSolver(Path workDir, long ramBudget) throws IOException {
+        Files.createDirectories(workDir);
+        String type = Files.getFileStore(workDir).type();
+        if (REMOTE_FILE_SYSTEMS.contains(type)){
+            throw new IOException(workDir + " is on a " + type + " file system, not a local disk");
+        }
+        this.workDir = workDir;
+        this.ramBudget = Math.max(1, Math.min(ramBudget, (long) (Runtime.getRuntime().maxMemory() * MAX_HEAP_FRACTION)));
+    }
+
+    /**
+     * Find the shortest path to an explicit end configuration
+     * @param start the starting configuration
+     * @param end the end configuration
+     * @return the path, or null if there is no solution
+     * @throws IOException if a layer file can't be read or written
+     */
+    public List<String> solve(EncodableConfiguration start, Configuration end) throws IOException {
+        return search(start, end::equals);
+    }
+
+    /**
+     * Find the shortest path to any configuration that is a solution
+     * @param start the starting configuration
+     * @return the path, or null if there is no solution
+     * @throws IOException if a layer file can't be read or written
+     */
+    public List<String> solve(EncodableConfiguration start) throws IOException {
+        return search(start, Configuration::isSolution);
+    }
+
+    /**
+     * Run the search one layer at a time, continuing from the work directory if it holds
+     * an earlier run of the same puzzle
+     * @param start the starting configuration
+     * @param goal checks whether a configuration ends the search
+     * @return the path, or null if there is no solution
+     * @throws IOException if a layer file can't be read or written
+     */
+    private List<String> search(EncodableConfiguration start, Predicate<Configuration> goal) throws IOException {
+        byte[] startRecord = start.encode();
+        int width = startRecord.length;
+        int recordSize = width + PARENT_SIZE;
+        int depth = restore(startRecord, recordSize);
+        byte[] state = new byte[width];
+        while (true){
+            try (RecordReader layer = new RecordReader(layerFile(depth), recordSize)){
+                if (layer.count() == 0){
+                    return null;
+                }
+                RunWriter runs = new RunWriter(depth + 1, recordSize);
+                for (long i = 0; i < layer.count(); i++){
+                    layer.read(i, state);
+                    EncodableConfiguration current = start.decode(state);
+                    if (goal.test(current)){
+                        runs.discard();
+                        return buildPath(start, depth, i, recordSize);
+                    }
+                    for (Configuration c : current.getNeighbors()){
+                        runs.add(((EncodableConfiguration) c).encode(), i);
+                    }
+                }
+                Solver.uniqueConfigs += merge(runs.finish(), depth, recordSize, width);
+            }
+            depth++;
+            writeProgress(depth);
+            Files.delete(visitedFile(depth - 1));
+        }
+    }
+
+    /**
+     * Look for an earlier run of the same puzzle in the work directory. If there is one,
+     * clean up anything left from the layer it was building and count the states it found.
+     * Otherwise start a new search by writing the first layer.
+     * @param startRecord the encoded starting configuration
+     * @param recordSize the size of a layer record
+     * @return the last finished layer
+     * @throws IOException if the work directory can't be read or written
+     */
+    private int restore(byte[] startRecord, int recordSize) throws IOException {
+        int depth = -1;
+        Path progress = this.workDir.resolve(PROGRESS_FILE);
+        if (Files.exists(progress) && Files.exists(layerFile(0))){
+            try (RecordReader first = new RecordReader(layerFile(0), recordSize)){
+                byte[] record = new byte[startRecord.length];
+                // a directory written with another record size has no whole first record
+                if (first.count() == 1){
+                    first.read(0, record);
+                    if (Arrays.equals(record, startRecord)){
+                        String[] fields = Files.readString(progress).trim().split(" ");
+                        depth = Integer.parseInt(fields[0]);
+                        if (fields.length > 1){
+                            Solver.totalConfigs = Integer.parseInt(fields[1]);
+                        }
+                    }
+                }
+            }
+            if (depth >= 0 && !Files.exists(visitedFile(depth))){
+                depth = -1;
+            }
+        }
+        // remove runs, unfinished layers and old visited files, plus everything if this is a new search
+        try (Stream<Path> files = Files.list(this.workDir)){
+            for (Path file : (Iterable<Path>) files::iterator){
+                String name = file.getFileName().toString();
+                if (name.startsWith("run-") || name.endsWith(".tmp")
+                        || (name.startsWith("layer-") && fileNumber(name) > depth)
+                        || (name.startsWith("visited-") && fileNumber(name) != depth)){
+                    Files.delete(file);
+                }
+            }
+        }
+        if (depth < 0){
+            try (RecordWriter first = new RecordWriter(layerFile(0), recordSize)){
+                first.writeState(startRecord, NO_PARENT);
+            }
+            try (RecordWriter visited = new RecordWriter(visitedFile(0), startRecord.length)){
+                visited.write(startRecord);
+            }
+            depth = 0;
+            writeProgress(depth);
+        } else {
+            // the configurations found before the restart, counted the same way as a fresh run
+            for (int d = 1; d <= depth; d++){
+                Solver.uniqueConfigs += Files.size(layerFile(d)) / recordSize;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Merge the sorted runs of a new layer into its layer file, keeping only the first
+     * copy of each state and dropping states that are already in the visited file. The
+     * new states are merged into a new visited file at the same time.
+     * @param runFiles the sorted runs
+     * @param depth the last finished layer
+     * @param recordSize the size of a layer record
+     * @param width the size of an encoded state
+     * @return the number of states in the new layer
+     * @throws IOException if a file can't be read or written
+     */
+    private long merge(List<Path> runFiles, int depth, int recordSize, int width) throws IOException {
+        List<Cursor> runs = new ArrayList<>();
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(
+                (a, b) -> Arrays.compareUnsigned(a.record, b.record));
+        Path tmp = this.workDir.resolve("layer-" + (depth + 1) + ".tmp");
+        Path visitedTmp = this.workDir.resolve("visited-" + (depth + 1) + ".tmp");
+        long written = 0;
+        Cursor visited = new Cursor(new RecordReader(visitedFile(depth), width), width);
+        try (RecordWriter out = new RecordWriter(tmp, recordSize);
+             RecordWriter visitedOut = new RecordWriter(visitedTmp, width)){
+            for (Path run : runFiles){
+                Cursor cursor = new Cursor(new RecordReader(run, recordSize), recordSize);
+                runs.add(cursor);
+                if (cursor.advance()){
+                    queue.add(cursor);
+                }
+            }
+            visited.advance();
+            byte[] last = null;
+            while (!queue.isEmpty()){
+                Cursor cursor = queue.poll();
+                byte[] record = cursor.record.clone();
+                if (cursor.advance()){
+                    queue.add(cursor);
+                }
+                if (last != null && Arrays.equals(last, 0, width, record, 0, width)){
+                    continue;
+                }
+                last = record;
+                // copy the visited states that sort before this one into the new visited file
+                while (visited.record != null
+                        && Arrays.compareUnsigned(visited.record, 0, width, record, 0, width) < 0){
+                    visitedOut.write(visited.record);
+                    visited.advance();
+                }
+                if (visited.record == null || !Arrays.equals(visited.record, 0, width, record, 0, width)){
+                    out.write(record);
+                    visitedOut.writeAt(record, 0);
+                    written++;
+                }
+            }
+            while (visited.record != null){
+                visitedOut.write(visited.record);
+                visited.advance();
+            }
+        } finally {
+            for (Cursor cursor : runs){
+                cursor.reader.close();
+            }
+            visited.reader.close();
+        }
+        Files.move(tmp, layerFile(depth + 1), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(visitedTmp, visitedFile(depth + 1), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (Path run : runFiles){
+            Files.delete(run);
+        }
+        return written;
+    }
+
+    /**
+     * Follow the parent indexes from a record back to the first layer to build the path
+     * @param start the starting configuration, used to decode records
+     * @param depth the layer of the last configuration
+     * @param index the index of the last configuration in its layer
+     * @param recordSize the size of a layer record
+     * @return the path
+     * @throws IOException if a layer file can't be read
+     */
+    private List<String> buildPath(EncodableConfiguration start, int depth, long index, int recordSize)
+            throws IOException {
+        List<String> path = new LinkedList<>();
+        byte[] state = new byte[recordSize - PARENT_SIZE];
+        for (int d = depth; d >= 0; d--){
+            try (RecordReader layer = new RecordReader(layerFile(d), recordSize)){
+                layer.read(index, state);
+                path.add(0, start.decode(state).toString());
+                index = layer.parent(index);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Record that a layer is finished and how many configurations have been made, replacing
+     * the progress file in one step
+     * @param depth the last finished layer
+     * @throws IOException if the file can't be written
+     */
+    private void writeProgress(int depth) throws IOException {
+        Path tmp = this.workDir.resolve(PROGRESS_FILE + ".tmp");
+        Files.writeString(tmp, depth + " " + Solver.totalConfigs + "\n");
+        Files.move(tmp, this.workDir.resolve(PROGRESS_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param depth the depth of a layer
+     * @return the file that holds the layer
+     */
+    private Path layerFile(int depth) {
+        return this.workDir.resolve("layer-" + depth + ".bin");
+    }
+
+    /**
+     * @param depth the last layer the states were found in
+     * @return the file that holds the sorted states of that layer and every one before it
+     */
+    private Path visitedFile(int depth) {
+        return this.workDir.resolve("visited-" + depth + ".bin");
+    }
+
+    /**
+     * @param name the name of a layer or visited file
+     * @return the depth in the name, or -1 if the name isn't a finished file
+     */
+    private static int fileNumber(String name) {
+        if (!name.endsWith(".bin")){
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(name.indexOf('-') + 1, name.length() - ".bin".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Collects the children of a layer in memory, up to the RAM budget, and writes them
+     * out as sorted runs without duplicates. The buffer doubles as records arrive, so a
+     * small layer never takes the whole budget.
+     */
+    private class RunWriter {
+        private final int layer;
+        private final int recordSize;
+        /** the most records a run may hold */
+        private final int maxRecords;
+        private final List<Path> runFiles = new ArrayList<>();
+        private int count = 0;
+
+        RunWriter(int layer, int recordSize) {
+            this.layer = layer;
+            this.recordSize = recordSize;
+            this.maxRecords = (int) Math.max(1, Math.min(ramBudget, Integer.MAX_VALUE - 8) / recordSize);
+        }
+
+        /**
+         * Add a child to the current run, writing the run out first if it is full
+         * @param state the encoded child
+         * @param parent the index of its parent
+         */
+        void add(byte[] state, long parent) throws IOException {
+            if ((count + 1) * recordSize > arena.length){
+                if (count < maxRecords){
+                    grow();
+                } else {
+                    spill();
+                }
+            }
+            int offset = count * recordSize;
+            System.arraycopy(state, 0, arena, offset, state.length);
+            putParent(arena, offset + state.length, parent);
+            count++;
+        }
+
+        /**
+         * Double the buffer, up to the budget, keeping the records in it
+         */
+        private void grow(){
+            long records = Math.max(arena.length / recordSize * 2L, Math.max(1, INITIAL_BUFFER / recordSize));
+            arena = Arrays.copyOf(arena, (int) Math.min(records, maxRecords) * recordSize);
+        }
+
+        /**
+         * Write out the last run
+         * @return every run of the layer
+         */
+        List<Path> finish() throws IOException {
+            if (count > 0){
+                spill();
+            }
+            return runFiles;
+        }
+
+        /**
+         * Delete the runs written so far, used when the search ends in the middle of a layer
+         */
+        void discard() throws IOException {
+            for (Path run : runFiles){
+                Files.deleteIfExists(run);
+            }
+        }
+
+        /**
+         * Sort the records in memory and write them to a new run file
+         */
+        private void spill() throws IOException {
+            sortRecords(arena, count, recordSize);
+            Path run = workDir.resolve("run-" + layer + "-" + runFiles.size() + ".bin");
+            int width = recordSize - PARENT_SIZE;
+            try (RecordWriter out = new RecordWriter(run, recordSize)){
+                for (int i = 0; i < count; i++){
+                    int offset = i * recordSize;
+                    // records are sorted, so duplicates sit next to each other
+                    if (i == 0 || !Arrays.equals(arena, offset - recordSize, offset - recordSize + width,
+                            arena, offset, offset + width)){
+                        out.writeAt(arena, offset);
+                    }
+                }
+            }
+            runFiles.add(run);
+            count = 0;
+        }
+    }
+
+    /**
+     * Sort fixed-size records in place with heapsort, so sorting a run needs no memory
+     * beyond the run itself
+     * @param arena the records
+     * @param count the number of records
+     * @param size the size of a record
+     */
+    private static void sortRecords(byte[] arena, int count, int size) {
+        byte[] swap = new byte[size];
+        for (int i = count / 2 - 1; i >= 0; i--){
+            siftDown(arena, i, count, size, swap);
+        }
+        for (int end = count - 1; end > 0; end--){
+            swapRecords(arena, 0, end, size, swap);
+            siftDown(arena, 0, end, size, swap);
+        }
+    }
+
+    private static void siftDown(byte[] arena, int i, int count, int size, byte[] swap) {
+        while (2 * i + 1 < count){
+            int child = 2 * i + 1;
+            if (child + 1 < count && compareRecords(arena, child + 1, child, size) > 0){
+                child++;
+            }
+            if (compareRecords(arena, i, child, size) >= 0){
+                return;
+            }
+            swapRecords(arena, i, child, size, swap);
+            i = child;
+        }
+    }
+
+    private static int compareRecords(byte[] arena, int a, int b, int size) {
+        return Arrays.compareUnsigned(arena, a * size, (a + 1) * size, arena, b * size, (b + 1) * size);
+    }
+
+    private static void swapRecords(byte[] arena, int a, int b, int size, byte[] swap) {
+        System.arraycopy(arena, a * size, swap, 0, size);
+        System.arraycopy(arena, b * size, arena, a * size, size);
+        System.arraycopy(swap, 0, arena, b * size, size);
+    }
+
+    /**
+     * Store a parent index big-endian, so records with the same state sort by parent
+     */
+    private static void putParent(byte[] bytes, int offset, long parent) {
+        for (int i = 0; i < PARENT_SIZE; i++){
+            bytes[offset + i] = (byte) (parent >>> (8 * (PARENT_SIZE - 1 - i)));
+        }
+    }
+
+    /**
+     * Reads one record at a time from a file, in order
+     */
+    private static class Cursor {
+        private final RecordReader reader;
+        private final byte[] buffer;
+        private byte[] record;
+        private long next = 0;
+
+        Cursor(RecordReader reader, int recordSize) {
+            this.reader = reader;
+            this.buffer = new byte[recordSize];
+        }
+
+        /**
+         * Move to the next record
+         * @return false if there are no more records
+         */
+        boolean advance() throws IOException {
+            if (next >= reader.count()){
+                record = null;
+                return false;
+            }
+            reader.read(next++, buffer);
+            record = buffer;
+            return true;
+        }
+    }
+
+    /**
+     * Reads records from a file through memory-mapped windows
+     */
+    private static class RecordReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final int recordSize;
+        private final long windowRecords;
+        private final long count;
+        private MappedByteBuffer window;
+        private long windowStart = -1;
+
+        RecordReader(Path file, int recordSize) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.recordSize = recordSize;
+            this.windowRecords = Math.max(1, WINDOW_SIZE / recordSize);
+            this.count = this.channel.size() / recordSize;
+        }
+
+        long count() {
+            return this.count;
+        }
+
+        /**
+         * Copy the start of a record into a buffer
+         * @param index the index of the record
+         * @param into the buffer, filled with as many bytes as it holds
+         */
+        void read(long index, byte[] into) throws IOException {
+            position(index);
+            this.window.get(into);
+        }
+
+        /**
+         * @param index the index of a record
+         * @return the parent index stored at the end of the record
+         */
+        long parent(long index) throws IOException {
+            position(index);
+            return this.window.getLong(this.window.position() + this.recordSize - PARENT_SIZE);
+        }
+
+        private void position(long index) throws IOException {
+            long start = index / this.windowRecords * this.windowRecords;
+            if (start != this.windowStart){
+                long length = Math.min(this.windowRecords, this.count - start) * this.recordSize;
+                this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, start * this.recordSize, length);
+                this.windowStart = start;
+            }
+            this.window.position((int) ((index - start) * this.recordSize));
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Appends records to a file through memory-mapped windows
+     */
+    private static class RecordWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final int recordSize;
+        private final long windowSize;
+        private MappedByteBuffer window;
+        private long windowStart = 0;
+
+        RecordWriter(Path file, int recordSize) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.recordSize = recordSize;
+            this.windowSize = Math.max(1, WINDOW_SIZE / recordSize) * recordSize;
+        }
+
+        /**
+         * Append a state and its parent index
+         */
+        void writeState(byte[] state, long parent) throws IOException {
+            byte[] record = Arrays.copyOf(state, this.recordSize);
+            putParent(record, state.length, parent);
+            writeAt(record, 0);
+        }
+
+        /**
+         * Append a whole record
+         */
+        void write(byte[] record) throws IOException {
+            writeAt(record, 0);
+        }
+
+        /**
+         * Append a record copied out of a larger array
+         */
+        void writeAt(byte[] bytes, int offset) throws IOException {
+            if (this.window == null || !this.window.hasRemaining()){
+                if (this.window != null){
+                    this.window.force();
+                    this.windowStart += this.window.capacity();
+                }
+                this.window = this.channel.map(FileChannel.MapMode.READ_WRITE, this.windowStart, this.windowSize);
+            }
+            this.window.put(bytes, offset, this.recordSize);
+        }
+
+        @Override
+        public void close() throws IOException {
+            long size = this.windowStart;
+            if (this.window != null){
+                this.window.force();
+                size += this.window.position();
+            }
+            this.channel.truncate(size);
+            this.channel.force(true);
+            this.channel.close();
+        }
+    }
+}
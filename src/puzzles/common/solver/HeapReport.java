@@ -0,0 +1,199 @@
+package puzzles.common.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What Solver.measureHeap() found: how many bytes each visited configuration takes, and how
+ * much heap the whole search is projected to need.
+ *
+ * Each visited configuration costs the configuration itself, its entry in the predecessors
+ * list, and while it waits to be expanded, its entry in the frontier. The configuration is
+ * measured on samples from every level explored, so rows or objects shared between
+ * configurations are only counted once.
+ *
+ * When the frontier is packed into direct buffers, its entries take no heap, so they are
+ * projected separately as direct memory.
+ *
+ * The levels that were not explored are projected from the growth of the ones that were.
+ * The growth from one level to the next usually falls by about the same factor each level,
+ * so the last growth is carried on with that fall, or kept as it is if it isn't falling.
+ * The projection assumes the whole state space to the deepest level is visited, which is
+ * the most a search can need.
+ * @author Jake Edelstein
+ */
+public class HeapReport {
+    /** more projected states than this counts as unbounded */
+    private static final double MAX_STATES = 1e13;
+
+    private final long configBytes;
+    private final long entryBytes;
+    private final long frontierEntryBytes;
+    private final boolean offHeapFrontier;
+    private final List<Long> measuredLevels;
+    private final boolean complete;
+    private final List<Long> projectedLevels;
+    private final long projectedStates;
+    private final long peakFrontier;
+    private final long peakBytes;
+    private final long peakDirectBytes;
+
+    /**
+     * @param configBytes the bytes of one configuration, averaged over the samples
+     * @param entryBytes the bytes of one entry of the predecessors list, not counting its table
+     * @param frontierEntryBytes the bytes of one entry of the frontier
+     * @param offHeapFrontier true if the frontier entries are kept outside the heap
+     * @param measuredLevels the configurations first visited at each depth explored
+     * @param complete true if every level was explored, so nothing is projected
+     * @param maxDepth the deepest level there can be
+     */
+    HeapReport(long configBytes, long entryBytes, long frontierEntryBytes, boolean offHeapFrontier,
+               List<Long> measuredLevels, boolean complete, int maxDepth){
+        this.configBytes = configBytes;
+        this.entryBytes = entryBytes;
+        this.frontierEntryBytes = frontierEntryBytes;
+        this.offHeapFrontier = offHeapFrontier;
+        this.measuredLevels = Collections.unmodifiableList(new ArrayList<>(measuredLevels));
+        this.complete = complete;
+        List<Long> levels = new ArrayList<>(measuredLevels);
+        boolean bounded = complete || project(levels, maxDepth);
+        this.projectedLevels = Collections.unmodifiableList(levels);
+        long states = 0;
+        long widest = 0;
+        for (long level : levels){
+            states += level;
+            widest = Math.max(widest, level);
+        }
+        this.projectedStates = bounded ? states : Long.MAX_VALUE;
+        this.peakFrontier = bounded ? widest : Long.MAX_VALUE;
+        long frontierBytes = widest * frontierEntryBytes;
+        this.peakBytes = bounded ? states * (configBytes + entryBytes) + ObjectSizes.hashTableBytes(states)
+                + (offHeapFrontier ? 0 : frontierBytes) : Long.MAX_VALUE;
+        this.peakDirectBytes = !offHeapFrontier ? 0 : bounded ? frontierBytes : Long.MAX_VALUE;
+    }
+
+    /**
+     * Add projected levels after the measured ones
+     * @param levels the measured levels, which this adds to
+     * @param maxDepth the deepest level there can be
+     * @return false if the projection grows without bound
+     */
+    private static boolean project(List<Long> levels, int maxDepth){
+        int n = levels.size();
+        if (n < 2){
+            return levels.isEmpty() || levels.get(0) == 0;
+        }
+        double growth = Math.log((double) levels.get(n - 1) / levels.get(n - 2));
+        // how much the log of the growth changes each level, from up to the last three growths
+        double fall = 0;
+        if (n >= 4){
+            double before = Math.log((double) levels.get(n - 3) / levels.get(n - 4));
+            fall = Math.min(0, (growth - before) / 2);
+        } else if (n == 3){
+            fall = Math.min(0, growth - Math.log((double) levels.get(1) / levels.get(0)));
+        }
+        if (maxDepth == Integer.MAX_VALUE && fall == 0 && growth >= 0){
+            // nothing stops the levels from growing
+            return false;
+        }
+        double size = levels.get(n - 1);
+        double states = 0;
+        for (long level : levels){
+            states += level;
+        }
+        for (int depth = n; depth <= maxDepth; depth++){
+            growth += fall;
+            size *= Math.exp(growth);
+            if (size < 1){
+                break;
+            }
+            states += size;
+            if (states > MAX_STATES){
+                return false;
+            }
+            levels.add(Math.round(size));
+        }
+        return true;
+    }
+
+    /**
+     * @param heapBytes the heap the search may use
+     * @return true if the projected peak fits in it
+     */
+    public boolean fits(long heapBytes){
+        return this.peakBytes <= heapBytes;
+    }
+
+    /**
+     * @param heapBytes the heap the search may use
+     * @param directBytes the direct memory the search may use
+     * @return true if the projected peaks fit in both
+     */
+    public boolean fits(long heapBytes, long directBytes){
+        return this.peakBytes <= heapBytes && this.peakDirectBytes <= directBytes;
+    }
+
+    /** getters for private values */
+    public long getConfigBytes() {
+        return this.configBytes;
+    }
+
+    public long getEntryBytes() {
+        return this.entryBytes;
+    }
+
+    public long getFrontierEntryBytes() {
+        return this.frontierEntryBytes;
+    }
+
+    public boolean isOffHeapFrontier() {
+        return this.offHeapFrontier;
+    }
+
+    public List<Long> getMeasuredLevels() {
+        return this.measuredLevels;
+    }
+
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    public List<Long> getProjectedLevels() {
+        return this.projectedLevels;
+    }
+
+    public long getProjectedStates() {
+        return this.projectedStates;
+    }
+
+    public long getPeakFrontier() {
+        return this.peakFrontier;
+    }
+
+    public long getPeakBytes() {
+        return this.peakBytes;
+    }
+
+    public long getPeakDirectBytes() {
+        return this.peakDirectBytes;
+    }
+
+    /**
+     * @return the report as a readable string
+     */
+    @Override
+    public String toString() {
+        long measured = 0;
+        for (long level : this.measuredLevels){
+            measured += level;
+        }
+        String projection = this.peakBytes == Long.MAX_VALUE ? "unbounded"
+                : this.projectedStates + " states to depth " + (this.projectedLevels.size() - 1) + ", peak frontier "
+                + this.peakFrontier + ", peak heap " + (this.peakBytes >> 20) + " MB"
+                + (this.offHeapFrontier ? ", peak direct " + (this.peakDirectBytes >> 20) + " MB" : "");
+        return this.configBytes + " B config + " + this.entryBytes + " B visited entry + " + this.frontierEntryBytes
+                + " B " + (this.offHeapFrontier ? "off-heap " : "") + "frontier entry per state; " + this.measuredLevels.size() + " levels measured (" + measured
+                + " states" + (this.complete ? ", complete" : "") + "), projected " + projection;
+    }
+}
@@ -0,0 +1,92 @@
+package puzzles.common.solver;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class stores a solution path compactly as a list of moves. Each move is the
+ * position of the next configuration in the current configuration's getNeighbors(),
+ * which is the same every time, so the path can be rebuilt by replaying the moves
+ * from the starting configuration.
+ * @author Jake Edelstein
+ */
+public class MoveList {
+    /**
+     * Turn a path into moves
+     * @param path the configurations of the path, starting with the starting configuration
+     * @return the moves
+     */
+    public static int[] encode(List<Configuration> path){
+        int[] moves = new int[path.size() - 1];
+        for (int step = 0; step < moves.length; step++){
+            int index = 0;
+            for (Configuration c : path.get(step).getNeighbors()){
+                if (c.equals(path.get(step + 1))){
+                    break;
+                }
+                index++;
+            }
+            moves[step] = index;
+        }
+        return moves;
+    }
+
+    /**
+     * Rebuild a path by replaying moves from the starting configuration
+     * @param start the starting configuration
+     * @param moves the moves
+     * @return the configurations of the path, starting with the starting configuration
+     * @throws IllegalArgumentException if a move isn't possible from its configuration
+     */
+    public static List<Configuration> decode(Configuration start, int[] moves){
+        List<Configuration> path = new ArrayList<>(moves.length + 1);
+        path.add(start);
+        Configuration current = start;
+        for (int move : moves){
+            Configuration next = null;
+            int index = 0;
+            for (Configuration c : current.getNeighbors()){
+                if (index++ == move){
+                    next = c;
+                    break;
+                }
+            }
+            if (next == null){
+                throw new IllegalArgumentException("Move " + move + " is not possible from\n" + current);
+            }
+            path.add(next);
+            current = next;
+        }
+        return path;
+    }
+
+    /**
+     * Write moves as a count followed by the moves, each as a variable-length int
+     * @param out where to write
+     * @param moves the moves
+     * @throws IOException if writing fails
+     */
+    public static void write(DataOutput out, int[] moves) throws IOException {
+        VarInt.write(out, moves.length);
+        for (int move : moves){
+            VarInt.write(out, move);
+        }
+    }
+
+    /**
+     * Read moves written by write()
+     * @param in where to read from
+     * @return the moves
+     * @throws IOException if reading fails
+     */
+    public static int[] read(DataInput in) throws IOException {
+        int[] moves = new int[VarInt.read(in)];
+        for (int i = 0; i < moves.length; i++){
+            moves[i] = VarInt.read(in);
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,228 @@
+package puzzles.common.solver;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class works out how many bytes objects take on the heap of this JVM. The sizes of
+ * headers and references are read from the JVM's own options, so they are right whether
+ * compressed pointers are on or not, and an object's size is its header plus its fields
+ * rounded up to the object alignment. Padding between fields is not counted, so sizes can
+ * be a few bytes low.
+ *
+ * Fields of classes outside this module can't always be read. Objects of those classes
+ * count only their own size, except for strings, whose characters are counted too.
+ * @author Jake Edelstein
+ */
+public class ObjectSizes {
+    /** the size of a reference */
+    public static final int REFERENCE_BYTES;
+    /** the size of an object header */
+    public static final int HEADER_BYTES;
+    /** the size of an array header, including its length */
+    public static final int ARRAY_HEADER_BYTES;
+    /** every object takes a multiple of this many bytes */
+    public static final int ALIGNMENT;
+    /** true if the sizes above came from the JVM rather than being guessed */
+    public static final boolean MEASURED;
+
+    /** the reference fields of each class, including inherited ones */
+    private static final ClassValue<List<Field>> referenceFields = new ClassValue<>() {
+        @Override
+        protected List<Field> computeValue(Class<?> type){
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null; c = c.getSuperclass()){
+                for (Field f : c.getDeclaredFields()){
+                    if (!Modifier.isStatic(f.getModifiers()) && !f.getType().isPrimitive()){
+                        try {
+                            f.setAccessible(true);
+                            fields.add(f);
+                        } catch (RuntimeException e) {
+                            // a field of a class that isn't open to this module
+                        }
+                    }
+                }
+            }
+            return fields;
+        }
+    };
+
+    /** the size of an instance of each class */
+    private static final ClassValue<Long> shallowSizes = new ClassValue<>() {
+        @Override
+        protected Long computeValue(Class<?> type){
+            long size = HEADER_BYTES;
+            for (Class<?> c = type; c != null; c = c.getSuperclass()){
+                for (Field f : c.getDeclaredFields()){
+                    if (!Modifier.isStatic(f.getModifiers())){
+                        size += fieldBytes(f.getType());
+                    }
+                }
+            }
+            return align(size);
+        }
+    };
+
+    static {
+        boolean compressedOops = true;
+        boolean compressedClasses = true;
+        int alignment = 8;
+        boolean measured = false;
+        try {
+            HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            compressedOops = Boolean.parseBoolean(hotSpot.getVMOption("UseCompressedOops").getValue());
+            compressedClasses = Boolean.parseBoolean(hotSpot.getVMOption("UseCompressedClassPointers").getValue());
+            alignment = Integer.parseInt(hotSpot.getVMOption("ObjectAlignmentInBytes").getValue());
+            measured = true;
+        } catch (RuntimeException | LinkageError e) {
+            // not a HotSpot JVM, so assume its defaults
+        }
+        REFERENCE_BYTES = compressedOops ? 4 : 8;
+        HEADER_BYTES = compressedClasses ? 12 : 16;
+        ARRAY_HEADER_BYTES = HEADER_BYTES + 4;
+        ALIGNMENT = alignment;
+        MEASURED = measured;
+    }
+
+    /**
+     * @return a size rounded up to the object alignment
+     */
+    private static long align(long size){
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * @return the bytes a field or array element of a type takes
+     */
+    private static int fieldBytes(Class<?> type){
+        if (!type.isPrimitive()){
+            return REFERENCE_BYTES;
+        } else if (type == long.class || type == double.class){
+            return 8;
+        } else if (type == int.class || type == float.class){
+            return 4;
+        } else if (type == short.class || type == char.class){
+            return 2;
+        }
+        return 1;
+    }
+
+    /**
+     * @param type a class that isn't an array
+     * @return the bytes an instance of it takes, not counting what its fields refer to
+     */
+    public static long shallowSize(Class<?> type){
+        return shallowSizes.get(type);
+    }
+
+    /**
+     * @param component the type of the elements
+     * @param length the number of elements
+     * @return the bytes an array takes, not counting what its elements refer to
+     */
+    public static long arraySize(Class<?> component, long length){
+        return align(ARRAY_HEADER_BYTES + length * fieldBytes(component));
+    }
+
+    /**
+     * Add up the sizes of an object and everything it refers to that hasn't been counted yet.
+     * Other configurations it refers to are not followed, since they are counted on their own.
+     * @param root the object
+     * @param seen the objects counted so far, by identity, which this adds to
+     * @return the bytes of the objects counted by this call
+     */
+    public static long deepSize(Object root, Set<Object> seen){
+        long total = 0;
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()){
+            Object o = pending.pop();
+            if (!seen.add(o)){
+                continue;
+            }
+            Class<?> type = o.getClass();
+            if (type.isArray()){
+                int length = Array.getLength(o);
+                total += arraySize(type.getComponentType(), length);
+                if (!type.getComponentType().isPrimitive()){
+                    for (int i = 0; i < length; i++){
+                        push(pending, Array.get(o, i), root);
+                    }
+                }
+            } else if (o instanceof String){
+                // the characters are in an array this module can't reach, one byte each for Latin-1
+                total += shallowSize(String.class) + arraySize(byte.class, ((String) o).length());
+            } else if (!(o instanceof Class)){
+                total += shallowSize(type);
+                for (Field f : referenceFields.get(type)){
+                    try {
+                        push(pending, f.get(o), root);
+                    } catch (IllegalAccessException e) {
+                        // counted as a reference only
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Queue an object to be counted, unless it is null or another configuration
+     */
+    private static void push(Deque<Object> pending, Object o, Object root){
+        if (o != null && (o == root || !(o instanceof Configuration))){
+            pending.push(o);
+        }
+    }
+
+    /**
+     * @return the bytes of one entry of a HashMap, not counting its key and value
+     */
+    public static long hashMapEntryBytes(){
+        // HashMap.Node holds the hash and three references
+        return align(HEADER_BYTES + 4 + 3L * REFERENCE_BYTES);
+    }
+
+    /**
+     * @param entries the number of entries
+     * @return the bytes of the table of a HashMap with that many entries and the default load factor
+     */
+    public static long hashTableBytes(long entries){
+        long capacity = Long.highestOneBit(Math.max(1, (long) Math.ceil(entries / 0.75) - 1)) << 1;
+        return arraySize(Object.class, capacity);
+    }
+
+    /**
+     * @return the bytes of one node of a LinkedList, not counting its element
+     */
+    public static long linkedListNodeBytes(){
+        // LinkedList.Node holds the element and two links
+        return align(HEADER_BYTES + 3L * REFERENCE_BYTES);
+    }
+
+    /**
+     * @return the most bytes direct buffers may take outside the heap, which is the heap size
+     * unless -XX:MaxDirectMemorySize says otherwise
+     */
+    public static long maxDirectMemory(){
+        try {
+            HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            long max = Long.parseLong(hotSpot.getVMOption("MaxDirectMemorySize").getValue());
+            if (max > 0){
+                return max;
+            }
+        } catch (RuntimeException | LinkageError e) {
+            // not a HotSpot JVM, so assume its default
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+}
@@ -0,0 +1,176 @@
+package puzzles.common.solver;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * This class answers whether a puzzle is solvable, and roughly how big its state space is,
+ * without the memory of an exact search. It searches breadth first like Solver, but keeps a
+ * Bloom filter instead of the predecessors list, so it only costs a few bits per state plus
+ * the frontier, which is kept in a CompressedFrontier when the configurations can be
+ * encoded. It can't build a path.
+ *
+ * A false positive makes it skip a configuration it hasn't seen. The chance of that is
+ * bounded by the false positive rate it was created with, as long as the state space is no
+ * bigger than the expected number of states. When the answer matters, confirm() runs an
+ * exact search restricted to the depths the exploration reached.
+ * @author Jake Edelstein
+ */
+public class ProbabilisticSolver {
+    private final long expectedStates;
+    private final double falsePositiveRate;
+    /** whether the last confirm() searched every configuration within its depth */
+    private boolean confirmComplete;
+
+    /**
+     * @param expectedStates the number of states the filter is sized for
+     * @param falsePositiveRate the false positive rate at that many states
+     */
+    public ProbabilisticSolver(long expectedStates, double falsePositiveRate){
+        this.expectedStates = expectedStates;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Explore until a configuration that is a solution is reached
+     * @param start the starting configuration
+     * @return the estimate
+     */
+    public Estimate explore(Configuration start){
+        return explore(start, Configuration::isSolution);
+    }
+
+    /**
+     * Explore until an explicit end configuration is reached
+     * @param start the starting configuration
+     * @param end the end configuration
+     * @return the estimate
+     */
+    public Estimate explore(Configuration start, Configuration end){
+        return explore(start, end::equals);
+    }
+
+    /**
+     * Search breadth first one layer at a time, keeping only the Bloom filter and the frontier
+     * @param start the starting configuration
+     * @param goal checks whether a configuration ends the search
+     * @return the estimate
+     */
+    private Estimate explore(Configuration start, Predicate<Configuration> goal){
+        BloomFilter visited = new BloomFilter(this.expectedStates, this.falsePositiveRate);
+        visited.add(start);
+        Collection<Configuration> layer = List.of(start);
+        int depth = 0;
+        long skipped = 0;
+        double expectedMissed = 0;
+        while (true){
+            Collection<Configuration> next = newLayer(start);
+            for (Configuration current : layer){
+                if (goal.test(current)){
+                    return new Estimate(true, depth, visited.getAdded(), visited.falsePositiveRate(),
+                            expectedMissed, skipped);
+                }
+                for (Configuration c : current.getNeighbors()){
+                    // the rate before adding is the chance this configuration is new but reported as seen
+                    double rate = visited.falsePositiveRate();
+                    if (visited.add(c)){
+                        skipped++;
+                        expectedMissed += rate;
+                    } else {
+                        next.add(c);
+                    }
+                }
+            }
+            if (next.isEmpty()){
+                return new Estimate(false, depth, visited.getAdded(), visited.falsePositiveRate(),
+                        expectedMissed, skipped);
+            }
+            layer = next;
+            depth++;
+        }
+    }
+
+    /**
+     * @param start the starting configuration
+     * @return an empty layer, compressed if the configurations can be encoded
+     */
+    private static Collection<Configuration> newLayer(Configuration start){
+        if (start instanceof EncodableConfiguration){
+            return new CompressedFrontier((EncodableConfiguration) start, false);
+        }
+        return new LinkedList<>();
+    }
+
+    /**
+     * Check an estimate with an exact search for a configuration that is a solution,
+     * restricted to the depths the exploration reached
+     * @param start the starting configuration
+     * @param estimate the estimate from explore(start)
+     * @return the shortest path, or null if there is none within those depths
+     */
+    public List<String> confirm(Configuration start, Estimate estimate){
+        return confirm(start, Configuration::isSolution, estimate.getDepth());
+    }
+
+    /**
+     * Check an estimate with an exact search for an explicit end configuration,
+     * restricted to the depths the exploration reached
+     * @param start the starting configuration
+     * @param end the end configuration
+     * @param estimate the estimate from explore(start, end)
+     * @return the shortest path, or null if there is none within those depths
+     */
+    public List<String> confirm(Configuration start, Configuration end, Estimate estimate){
+        return confirm(start, end::equals, estimate.getDepth());
+    }
+
+    /**
+     * Search breadth first with an exact predecessors list, expanding nothing at the depth limit.
+     * A goal the exploration reached is at most that deep, so it is always found again.
+     * @param start the starting configuration
+     * @param goal checks whether a configuration ends the search
+     * @param maxDepth the depth limit
+     * @return the shortest path, or null if there is none within the depth limit
+     */
+    private List<String> confirm(Configuration start, Predicate<Configuration> goal, int maxDepth){
+        HashMap<Configuration, Configuration> predecessors = new HashMap<>();
+        predecessors.put(start, start);
+        LinkedList<Configuration> layer = new LinkedList<>();
+        layer.add(start);
+        this.confirmComplete = true;
+        for (int depth = 0; !layer.isEmpty(); depth++){
+            LinkedList<Configuration> next = new LinkedList<>();
+            for (Configuration current : layer){
+                if (goal.test(current)){
+                    return new Solver().buildPath(predecessors, start, current);
+                }
+                if (depth == maxDepth){
+                    // only the goal test is done at the limit, anything below it is left unsearched
+                    if (!current.getNeighbors().isEmpty()){
+                        this.confirmComplete = false;
+                    }
+                    continue;
+                }
+                for (Configuration c : current.getNeighbors()){
+                    if (!predecessors.containsKey(c)){
+                        predecessors.put(c, current);
+                        next.add(c);
+                    }
+                }
+            }
+            layer = next;
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the last confirm() searched every reachable configuration, so a
+     * null path from it means there is no solution at all
+     */
+    public boolean isConfirmComplete(){
+        return this.confirmComplete;
+    }
+}
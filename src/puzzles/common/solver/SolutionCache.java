@@ -0,0 +1,342 @@
+package puzzles.common.solver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * This class keeps solutions on disk so the same puzzle is only ever solved once.
+ *
+ * Each solution is stored in its own file, named by a SHA-256 hash of the puzzle type and
+ * the starting (and end) configuration, and holds the statistics of the solve and the path
+ * as a MoveList. The least recently used files are deleted when the cache grows past its
+ * size limit. Several JVMs can share one cache directory: reads take a shared lock and
+ * writes take an exclusive lock on a lock file in the directory. File locks belong to the
+ * whole JVM, so threads in the same JVM take turns on the cache object instead.
+ *
+ * Paths are stored as the index of each move in getNeighbors(), so they are only right
+ * while the neighbors come in the same order. The key includes the order of the starting
+ * configuration's neighbors, and every file starts with FORMAT_VERSION, which must go up
+ * whenever the order or the file layout changes.
+ *
+ * The default cache is off unless the puzzles.cache system property is on. It lives in the
+ * puzzles.cache.dir system property, or bfs-puzzle-cache in the temporary directory.
+ * @author Jake Edelstein
+ */
+public class SolutionCache {
+    /** marks the start of a cache file */
+    private static final int MAGIC = 0x42465353;
+    /** the version of the file layout and of the neighbor orders the paths were stored with */
+    private static final int FORMAT_VERSION = 2;
+    /** the size limit of the default cache */
+    private static final long DEFAULT_MAX_BYTES = 64L << 20;
+    private static final String SUFFIX = ".sol";
+    /** one cache object per directory, so threads in this JVM share its lock */
+    private static final HashMap<Path, SolutionCache> caches = new HashMap<>();
+
+    private final Path dir;
+    private final long maxBytes;
+
+    /**
+     * A solution read from the cache
+     */
+    public static class Entry {
+        private final List<String> path;
+        private final int totalConfigs;
+        private final int uniqueConfigs;
+
+        Entry(List<String> path, int totalConfigs, int uniqueConfigs){
+            this.path = path;
+            this.totalConfigs = totalConfigs;
+            this.uniqueConfigs = uniqueConfigs;
+        }
+
+        /** getters for private values */
+        public List<String> getPath() {
+            return this.path;
+        }
+
+        public int getTotalConfigs() {
+            return this.totalConfigs;
+        }
+
+        public int getUniqueConfigs() {
+            return this.uniqueConfigs;
+        }
+    }
+
+    /**
+     * @param dir the directory holding the cache files
+     * @param maxBytes the size the cache is kept under
+     */
+    private SolutionCache(Path dir, long maxBytes){
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the cache for a directory, creating the directory if needed
+     * @param dir the directory holding the cache files
+     * @param maxBytes the size the cache is kept under
+     * @return the cache
+     * @throws IOException if the directory can't be created
+     */
+    public static synchronized SolutionCache open(Path dir, long maxBytes) throws IOException {
+        Files.createDirectories(dir);
+        Path key = dir.toAbsolutePath().normalize();
+        SolutionCache cache = caches.get(key);
+        if (cache == null){
+            cache = new SolutionCache(key, maxBytes);
+            caches.put(key, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * @return the default cache, or null if it isn't turned on or can't be created
+     */
+    public static SolutionCache getDefault(){
+        if (!"on".equals(System.getProperty("puzzles.cache"))){
+            return null;
+        }
+        Path dir = Path.of(System.getProperty("puzzles.cache.dir",
+                Path.of(System.getProperty("java.io.tmpdir"), "bfs-puzzle-cache").toString()));
+        try {
+            return open(dir, Long.getLong("puzzles.cache.size", DEFAULT_MAX_BYTES));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Look up a solution in the default cache, and solve with a new Solver on a miss.
+     * Either way the Solver's statistics are set to those of the solve.
+     * @param start the starting configuration
+     * @param end the end configuration, or null to stop at any solution
+     * @return the path, or null if there is no solution
+     */
+    public static List<String> solveCached(Configuration start, Configuration end){
+        SolutionCache cache = getDefault();
+        if (cache != null){
+            Entry entry = cache.lookup(start, end);
+            if (entry != null){
+                Solver.totalConfigs = entry.getTotalConfigs();
+                Solver.uniqueConfigs = entry.getUniqueConfigs();
+                return entry.getPath();
+            }
+        }
+        Solver solver = new Solver();
+        HashMap<Configuration, Configuration> predecessors =
+                end == null ? solver.findSolution(start) : solver.findSolution(start, end);
+        List<Configuration> path = solver.buildConfigPath(predecessors, start,
+                end == null ? solver.getEndConfig() : end);
+        if (cache != null){
+            // encoding the moves makes neighbors, which shouldn't count toward this solve
+            int totalConfigs = Solver.totalConfigs;
+            cache.store(start, end, path, totalConfigs, Solver.uniqueConfigs);
+            Solver.totalConfigs = totalConfigs;
+        }
+        if (path == null){
+            return null;
+        }
+        List<String> strings = new ArrayList<>(path.size());
+        for (Configuration c : path){
+            strings.add(c.toString());
+        }
+        return strings;
+    }
+
+    /**
+     * Make the stable key of a puzzle from its type and configurations, and the order of the
+     * neighbors of the start, so paths stored with a different order are never found
+     * @param start the starting configuration
+     * @param end the end configuration, or null to stop at any solution
+     * @return the key as a hex string
+     */
+    public static String key(Configuration start, Configuration end){
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(start.getClass().getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(start.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            if (end != null){
+                digest.update(end.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            // making the neighbors shouldn't count toward a solve
+            int totalConfigs = Solver.totalConfigs;
+            for (Configuration neighbor : start.getNeighbors()){
+                digest.update((byte) 0);
+                digest.update(neighbor.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            Solver.totalConfigs = totalConfigs;
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()){
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Find a solution in the cache, marking it as recently used
+     * @param start the starting configuration
+     * @param end the end configuration, or null to stop at any solution
+     * @return the solution, or null if it isn't cached
+     */
+    public synchronized Entry lookup(Configuration start, Configuration end){
+        Path file = this.dir.resolve(key(start, end) + SUFFIX);
+        try (FileChannel lockChannel = lockChannel()){
+            FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, true);
+            try {
+                return read(file, start);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // a broken cache file is the same as a miss
+            return null;
+        }
+    }
+
+    /**
+     * Read a cache file while holding the shared lock
+     * @param file the file
+     * @param start the starting configuration, used to replay the moves
+     * @return the solution, or null if there is no file or it was written by another version
+     */
+    private static Entry read(Path file, Configuration start) throws IOException {
+        if (!Files.exists(file)){
+            return null;
+        }
+        int totalConfigs;
+        int uniqueConfigs;
+        int[] moves = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))){
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION){
+                return null;
+            }
+            totalConfigs = in.readInt();
+            uniqueConfigs = in.readInt();
+            if (in.readBoolean()){
+                moves = MoveList.read(in);
+            }
+        }
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        List<String> path = null;
+        if (moves != null){
+            path = new ArrayList<>(moves.length + 1);
+            for (Configuration c : MoveList.decode(start, moves)){
+                path.add(c.toString());
+            }
+        }
+        return new Entry(path, totalConfigs, uniqueConfigs);
+    }
+
+    /**
+     * Add a solution to the cache, then delete the least recently used solutions
+     * until the cache fits in its size limit
+     * @param start the starting configuration
+     * @param end the end configuration, or null to stop at any solution
+     * @param path the configurations of the path, or null if there is no solution
+     * @param totalConfigs the total configurations of the solve
+     * @param uniqueConfigs the unique configurations of the solve
+     */
+    public synchronized void store(Configuration start, Configuration end, List<Configuration> path,
+                                   int totalConfigs, int uniqueConfigs){
+        String key = key(start, end);
+        try (FileChannel lockChannel = lockChannel()){
+            FileLock lock = lockChannel.lock();
+            try {
+                write(key, path, totalConfigs, uniqueConfigs);
+                evict();
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            // the cache is only an optimization, so a failed store is skipped
+        }
+    }
+
+    /**
+     * Write a cache file while holding the exclusive lock
+     * @param key the key of the puzzle
+     * @param path the configurations of the path, or null if there is no solution
+     * @param totalConfigs the total configurations of the solve
+     * @param uniqueConfigs the unique configurations of the solve
+     */
+    private void write(String key, List<Configuration> path, int totalConfigs, int uniqueConfigs) throws IOException {
+        Path tmp = this.dir.resolve(key + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))){
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(totalConfigs);
+            out.writeInt(uniqueConfigs);
+            out.writeBoolean(path != null);
+            if (path != null){
+                MoveList.write(out, MoveList.encode(path));
+            }
+        }
+        Files.move(tmp, this.dir.resolve(key + SUFFIX),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Delete the least recently used solutions until the cache fits in its size limit.
+     * Must be called while holding the exclusive lock.
+     */
+    private void evict() throws IOException {
+        List<Path> files = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> listing = Files.list(this.dir)){
+            for (Path file : (Iterable<Path>) listing::iterator){
+                if (file.getFileName().toString().endsWith(SUFFIX)){
+                    files.add(file);
+                    total += Files.size(file);
+                }
+            }
+        }
+        if (total <= this.maxBytes){
+            return;
+        }
+        HashMap<Path, FileTime> used = new HashMap<>();
+        for (Path file : files){
+            used.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort(Comparator.comparing(used::get));
+        for (Path file : files){
+            if (total <= this.maxBytes){
+                break;
+            }
+            total -= Files.size(file);
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * @return a channel on the lock file shared by every JVM using this cache
+     */
+    private FileChannel lockChannel() throws IOException {
+        return FileChannel.open(this.dir.resolve("cache.lock"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
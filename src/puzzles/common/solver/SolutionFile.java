@@ -0,0 +1,195 @@
+package puzzles.common.solver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This class saves a solution in a small binary file instead of as text. The file holds
+ * the SHA-256 hash of the puzzle from SolutionCache.key(), the statistics of the solve, and
+ * the path as a MoveList, so a path of any length over any board takes about a byte a step.
+ * Reading a file checks the hash against the puzzle it is read for, and the steps are
+ * rebuilt one at a time by replaying the moves, so a long path never has to be held as
+ * strings.
+ * @author Jake Edelstein
+ */
+public class SolutionFile {
+    /** marks the start of a solution file */
+    private static final int MAGIC = 0x42465350;
+    /** the length of a SHA-256 hash */
+    private static final int HASH_BYTES = 32;
+
+    private final int[] moves;
+    private final int totalConfigs;
+    private final int uniqueConfigs;
+
+    /**
+     * @param moves the moves of the path, or null if there is no solution
+     * @param totalConfigs the total configurations of the solve
+     * @param uniqueConfigs the unique configurations of the solve
+     */
+    private SolutionFile(int[] moves, int totalConfigs, int uniqueConfigs){
+        this.moves = moves;
+        this.totalConfigs = totalConfigs;
+        this.uniqueConfigs = uniqueConfigs;
+    }
+
+    /**
+     * Save a solution
+     * @param file the file to write
+     * @param start the starting configuration
+     * @param end the end configuration, or null if the puzzle stops at any solution
+     * @param path the path as strings, starting with the start, or null if there is no solution
+     * @param totalConfigs the total configurations of the solve
+     * @param uniqueConfigs the unique configurations of the solve
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path file, Configuration start, Configuration end, List<String> path,
+                             int totalConfigs, int uniqueConfigs) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))){
+            out.writeInt(MAGIC);
+            out.write(hash(start, end));
+            VarInt.write(out, totalConfigs);
+            VarInt.write(out, uniqueConfigs);
+            out.writeBoolean(path != null);
+            if (path != null){
+                // replaying the path makes configs, which aren't part of the solve
+                int counted = Solver.totalConfigs;
+                MoveList.write(out, moves(start, path));
+                Solver.totalConfigs = counted;
+            }
+        }
+    }
+
+    /**
+     * Read a saved solution
+     * @param file the file to read
+     * @param start the starting configuration the solution is for
+     * @param end the end configuration, or null if the puzzle stops at any solution
+     * @return the solution
+     * @throws IOException if the file can't be read, or was saved for a different puzzle
+     */
+    public static SolutionFile read(Path file, Configuration start, Configuration end) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))){
+            if (in.readInt() != MAGIC){
+                throw new IOException("Not a solution file");
+            }
+            byte[] hash = new byte[HASH_BYTES];
+            in.readFully(hash);
+            if (!Arrays.equals(hash, hash(start, end))){
+                throw new IOException("Solution is for a different puzzle");
+            }
+            int totalConfigs = VarInt.read(in);
+            int uniqueConfigs = VarInt.read(in);
+            int[] moves = in.readBoolean() ? MoveList.read(in) : null;
+            return new SolutionFile(moves, totalConfigs, uniqueConfigs);
+        }
+    }
+
+    /**
+     * @return the SHA-256 hash of a puzzle as bytes
+     */
+    private static byte[] hash(Configuration start, Configuration end){
+        String hex = SolutionCache.key(start, end);
+        byte[] hash = new byte[HASH_BYTES];
+        for (int i = 0; i < HASH_BYTES; i++){
+            hash[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return hash;
+    }
+
+    /**
+     * Turn a path of strings into moves by finding each step among the neighbors of the one before
+     * @param start the starting configuration
+     * @param path the path as strings, starting with the start
+     * @return the moves
+     * @throws IllegalArgumentException if a step isn't a neighbor of the one before
+     */
+    static int[] moves(Configuration start, List<String> path){
+        int[] moves = new int[path.size() - 1];
+        Configuration current = start;
+        Iterator<String> steps = path.iterator();
+        steps.next();
+        for (int step = 0; step < moves.length; step++){
+            String next = steps.next();
+            Configuration found = null;
+            int index = 0;
+            for (Configuration c : current.getNeighbors()){
+                if (c.toString().equals(next)){
+                    found = c;
+                    break;
+                }
+                index++;
+            }
+            if (found == null){
+                throw new IllegalArgumentException("Step " + (step + 1) + " is not a move from\n" + current);
+            }
+            moves[step] = index;
+            current = found;
+        }
+        return moves;
+    }
+
+    /**
+     * Replay the moves one step at a time
+     * @param start the starting configuration the solution was read for
+     * @return the steps of the path, starting with the start
+     * @throws IllegalStateException if there is no solution
+     */
+    public Iterator<Configuration> steps(Configuration start){
+        if (this.moves == null){
+            throw new IllegalStateException("No solution");
+        }
+        return new Iterator<>() {
+            private Configuration current = null;
+            private int step = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.step <= moves.length;
+            }
+
+            @Override
+            public Configuration next() {
+                if (!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                if (this.current == null){
+                    this.current = start;
+                } else {
+                    this.current = MoveList.decode(this.current, new int[]{moves[this.step - 1]}).get(1);
+                }
+                this.step++;
+                return this.current;
+            }
+        };
+    }
+
+    /**
+     * @return true if the puzzle has a solution
+     */
+    public boolean hasSolution() {
+        return this.moves != null;
+    }
+
+    /** getters for private values */
+    public int getMoves() {
+        return this.moves == null ? -1 : this.moves.length;
+    }
+
+    public int getTotalConfigs() {
+        return this.totalConfigs;
+    }
+
+    public int getUniqueConfigs() {
+        return this.uniqueConfigs;
+    }
+}
@@ -0,0 +1,49 @@
+package puzzles.common.solver;
+
+/**
+ * The limits a search in Solver has to stay within. A search that hits one of them
+ * stops early and reports which one it hit.
+ * @author Jake Edelstein
+ */
+public class SolveBudget {
+    /** a budget with no limits */
+    public static final SolveBudget UNLIMITED = new SolveBudget(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long timeLimitMillis;
+    private final long maxStates;
+    private final long maxMemoryBytes;
+
+    /**
+     * Create a budget, use Long.MAX_VALUE for any limit that isn't needed
+     * @param timeLimitMillis the longest the search may run
+     * @param maxStates the most configurations the search may visit
+     * @param maxMemoryBytes the most heap the JVM may use while searching
+     */
+    public SolveBudget(long timeLimitMillis, long maxStates, long maxMemoryBytes){
+        this.timeLimitMillis = timeLimitMillis;
+        this.maxStates = maxStates;
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    /**
+     * Create a budget with only a time limit
+     * @param timeLimitMillis the longest the search may run
+     * @return the budget
+     */
+    public static SolveBudget ofMillis(long timeLimitMillis){
+        return new SolveBudget(timeLimitMillis, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /** getters for private values */
+    public long getTimeLimitMillis() {
+        return this.timeLimitMillis;
+    }
+
+    public long getMaxStates() {
+        return this.maxStates;
+    }
+
+    public long getMaxMemoryBytes() {
+        return this.maxMemoryBytes;
+    }
+}
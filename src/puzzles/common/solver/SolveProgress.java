@@ -0,0 +1,58 @@
+package puzzles.common.solver;
+
+/**
+ * A snapshot of a running search in Solver, sent to its progress listener
+ * @author Jake Edelstein
+ */
+public class SolveProgress {
+    private final long elapsedMillis;
+    private final long visited;
+    private final long frontier;
+    private final int depth;
+    private final long usedMemory;
+
+    /**
+     * @param elapsedMillis how long the search has been running
+     * @param visited how many configurations have been visited
+     * @param frontier how many configurations are waiting to be expanded
+     * @param depth the number of moves to the configuration being expanded
+     * @param usedMemory the heap in use
+     */
+    public SolveProgress(long elapsedMillis, long visited, long frontier, int depth, long usedMemory){
+        this.elapsedMillis = elapsedMillis;
+        this.visited = visited;
+        this.frontier = frontier;
+        this.depth = depth;
+        this.usedMemory = usedMemory;
+    }
+
+    /** getters for private values */
+    public long getElapsedMillis() {
+        return this.elapsedMillis;
+    }
+
+    public long getVisited() {
+        return this.visited;
+    }
+
+    public long getFrontier() {
+        return this.frontier;
+    }
+
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public long getUsedMemory() {
+        return this.usedMemory;
+    }
+
+    /**
+     * @return the snapshot as a readable string
+     */
+    @Override
+    public String toString() {
+        return this.elapsedMillis + " ms: " + this.visited + " visited, " + this.frontier
+                + " in frontier, depth " + this.depth + ", " + (this.usedMemory >> 20) + " MB used";
+    }
+}
@@ -0,0 +1,71 @@
+package puzzles.common.solver;
+
+import java.util.List;
+
+/**
+ * The outcome of a search. When the search stopped early, the partial path leads
+ * to the deepest configuration it reached.
+ * @author Jake Edelstein
+ */
+public class SolveResult {
+    private final SolveStatus status;
+    private final List<String> path;
+    private final List<String> partialPath;
+    private final SolveProgress progress;
+
+    /**
+     * @param status how the search ended
+     * @param path the path to the goal, or null if none was found
+     * @param partialPath the path to the deepest configuration reached, or null if the search was solved
+     * @param progress the state of the search when it ended
+     */
+    public SolveResult(SolveStatus status, List<String> path, List<String> partialPath, SolveProgress progress){
+        this.status = status;
+        this.path = path;
+        this.partialPath = partialPath;
+        this.progress = progress;
+    }
+
+    /** getters for private values */
+    public SolveStatus getStatus() {
+        return this.status;
+    }
+
+    public List<String> getPath() {
+        return this.path;
+    }
+
+    public List<String> getPartialPath() {
+        return this.partialPath;
+    }
+
+    public SolveProgress getProgress() {
+        return this.progress;
+    }
+
+    /**
+     * @return true if the search ended because of a limit or cancellation, so the
+     * puzzle may still have a solution
+     */
+    public boolean isStoppedEarly() {
+        return this.status != SolveStatus.SOLVED && this.status != SolveStatus.NO_SOLUTION;
+    }
+
+    /**
+     * @return the outcome as a readable string, such as "unsolved within 200 ms"
+     */
+    @Override
+    public String toString() {
+        switch (this.status){
+            case SOLVED:
+                return "solved in " + (this.path.size() - 1) + " steps";
+            case NO_SOLUTION:
+                return "no solution";
+            case CANCELLED:
+                return "cancelled after " + this.progress.getElapsedMillis() + " ms";
+            default:
+                return "unsolved within " + this.progress.getElapsedMillis() + " ms (" + this.status
+                        + ", reached depth " + this.progress.getDepth() + ")";
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package puzzles.common.solver;
+
+/**
+ * The ways a search in Solver can end
+ * @author Jake Edelstein
+ */
+public enum SolveStatus {
+    /** a goal was found */
+    SOLVED,
+    /** every reachable configuration was visited without finding a goal */
+    NO_SOLUTION,
+    /** the time limit ran out first */
+    TIME_LIMIT,
+    /** the limit on visited configurations was reached first */
+    STATE_LIMIT,
+    /** the heap grew past the memory limit first */
+    MEMORY_LIMIT,
+    /** the solving thread was interrupted */
+    CANCELLED
+}
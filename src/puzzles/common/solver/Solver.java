@@ -1,5 +1,9 @@
 package puzzles.common.solver;
+import puzzles.common.Observer;
+
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * This class implements a breadth-first search algorithm to solve several types of puzzles
@@ -12,6 +16,131 @@ public class Solver implements Configuration {
     public static int uniqueConfigs = 0;
     public static Configuration endConfig;
 
+    /** where checkpoints are written, or null if checkpoints are off */
+    private Path checkpointFile = null;
+    /** the shortest time between two checkpoints */
+    private long checkpointInterval;
+    /** the largest fraction of the solve time that may be spent writing checkpoints */
+    private double checkpointFraction;
+    /** whether to continue from the checkpoint file instead of starting over */
+    private boolean resume = false;
+    /** how many expanded configurations pass between checks of the budget */
+    private static final int CHECK_EVERY = 256;
+    /** the limits the search has to stay within */
+    private SolveBudget budget = SolveBudget.UNLIMITED;
+    /** gets progress snapshots while solving, or null if nobody is listening */
+    private Observer<Solver, SolveProgress> progressListener = null;
+    private long progressInterval;
+    /** how the last search ended */
+    private SolveStatus status = null;
+    /** the path to the deepest configuration of a search that stopped early */
+    private List<String> partialPath = null;
+    /** the state of the last search when it ended */
+    private SolveProgress lastProgress = null;
+    /** the goal found by the last search */
+    private Configuration foundEnd = null;
+    /** whether to keep the frontier as a CompressedFrontier, and whether off the heap */
+    private boolean compressedFrontier = false;
+    private boolean offHeapFrontier = false;
+    /** finds configurations that can't lead to a goal, or null to expand everything */
+    private Predicate<Configuration> pruner = null;
+    /** the most configurations of each level measured by measureHeap() */
+    private static final int HEAP_SAMPLES_PER_LEVEL = 64;
+
+    /**
+     * Periodically write the frontier, the visited configurations, and the statistics to a file
+     * while solving. Only works for configurations that implement EncodableConfiguration.
+     * @param file the checkpoint file
+     * @param intervalMillis the shortest time between two checkpoints
+     * @param maxFraction the largest fraction of the solve time that may be spent writing checkpoints
+     */
+    public void setCheckpoint(Path file, long intervalMillis, double maxFraction){
+        this.checkpointFile = file;
+        this.checkpointInterval = intervalMillis;
+        this.checkpointFraction = maxFraction;
+    }
+
+    /**
+     * Continue from the checkpoint file the next time findSolution is called, if it
+     * exists and was written for the same starting configuration
+     * @param resume true to continue from the checkpoint
+     */
+    public void setResume(boolean resume){
+        this.resume = resume;
+    }
+
+    /**
+     * Keep the frontier packed into compressed chunks instead of a list of objects, so much
+     * wider levels fit in the same heap. The search then goes one level at a time and
+     * expands each level in sorted order, so it finds a shortest path but not always the
+     * same one. Only works for configurations that implement EncodableConfiguration, and
+     * isn't used together with checkpoints.
+     * @param compressed true to compress the frontier
+     * @param offHeap true to keep the compressed chunks outside the heap
+     */
+    public void setCompressedFrontier(boolean compressed, boolean offHeap){
+        this.compressedFrontier = compressed;
+        this.offHeapFrontier = offHeap;
+    }
+
+    /**
+     * Skip configurations that can be shown to never lead to a goal. They are still
+     * marked as visited, but are never added to the frontier, so their neighbors are
+     * never made. The start is never checked.
+     * @param pruner returns true for a configuration that can't lead to a goal, or null to check nothing
+     */
+    public void setPruner(Predicate<Configuration> pruner){
+        this.pruner = pruner;
+    }
+
+    /**
+     * Limit how long the search may run, how many configurations it may visit, and how
+     * much heap it may use. A search that hits a limit returns null and getStatus() says why.
+     * @param budget the limits
+     */
+    public void setBudget(SolveBudget budget){
+        this.budget = budget;
+    }
+
+    /**
+     * Send a snapshot of the search to a listener every so often while solving
+     * @param listener the listener
+     * @param intervalMillis the time between snapshots
+     */
+    public void setProgressListener(Observer<Solver, SolveProgress> listener, long intervalMillis){
+        this.progressListener = listener;
+        this.progressInterval = intervalMillis;
+    }
+
+    /**
+     * @return how the last search ended, or null if nothing has been solved yet
+     */
+    public SolveStatus getStatus(){
+        return this.status;
+    }
+
+    /**
+     * @return the path to the deepest configuration reached by a search that stopped early, else null
+     */
+    public List<String> getPartialPath(){
+        return this.partialPath;
+    }
+
+    /**
+     * Unlike the static endConfig, this is safe to use when several solvers run at once
+     * @return the goal found by the last search, or null if none was found
+     */
+    public Configuration getEndConfig(){
+        return this.foundEnd;
+    }
+
+    /**
+     * @return the state of the last search when it ended
+     */
+    public SolveProgress getLastProgress(){
+        return this.lastProgress;
+    }
+
     /**
      * This version of the findSolution method is used when an explicit end configuration is given
      * @param start the starting configuration
@@ -19,53 +148,260 @@ public class Solver implements Configuration {
      * @return the predecessors list
      */
    public HashMap<Configuration, Configuration> findSolution (Configuration start, Configuration end){
+       return search(start, end::equals);
+   }
+
+    /**
+     * This version of the findSolution method is used when there are many possible end configurations
+     * @param start the starting configuration
+     * @return the predecessors list
+     */
+   public HashMap<Configuration, Configuration> findSolution (Configuration start){
+       return search(start, Configuration::isSolution);
+   }
+
+    /**
+     * Breadth-first search from the starting configuration until a goal is found
+     * @param start the starting configuration
+     * @param goal checks whether a configuration ends the search
+     * @return the predecessors list, or null if no goal can be reached
+     */
+   private HashMap<Configuration, Configuration> search (Configuration start, Predicate<Configuration> goal){
+       if (this.compressedFrontier && this.checkpointFile == null && start instanceof EncodableConfiguration){
+           return searchByLevel((EncodableConfiguration) start, goal);
+       }
        // BFS find path
        LinkedList<Configuration> queue = new LinkedList<>();
        HashMap<Configuration, Configuration> predecessors = new HashMap<>();
-       queue.add(start);
-       predecessors.put(start, start);
+       Checkpoint checkpoint = null;
+       if (this.checkpointFile != null){
+           checkpoint = new Checkpoint(this.checkpointFile, this.checkpointInterval, this.checkpointFraction);
+       }
+       if (checkpoint == null || !this.resume || !checkpoint.restore(start, queue, predecessors)){
+           queue.add(start);
+           predecessors.put(start, start);
+       }
+       this.partialPath = null;
+       this.foundEnd = null;
+       long started = System.nanoTime();
+       long lastReport = started;
+       int expanded = 0;
        while (!queue.isEmpty()){
            Configuration current = queue.remove(0);
-           if (current.equals(end)){
+           if (goal.test(current)){
+               endConfig = current;
+               this.foundEnd = current;
+               this.status = SolveStatus.SOLVED;
+               this.lastProgress = snapshot(started, predecessors, queue.size(), start, current);
                return predecessors;
            }
            for (Configuration c : current.getNeighbors()){
                if (!predecessors.containsKey(c)){
                    predecessors.put(c, current);
-                   queue.add(c);
+                   if (this.pruner == null || !this.pruner.test(c)){
+                       queue.add(c);
+                   }
                    uniqueConfigs++;
                }
            }
+           if (++expanded % CHECK_EVERY == 0){
+               long now = System.nanoTime();
+               SolveStatus stop = checkBudget(now - started, predecessors.size());
+               if (this.progressListener != null && (stop != null || now - lastReport >= this.progressInterval * 1_000_000)){
+                   this.progressListener.update(this, snapshot(started, predecessors, queue.size(), start, current));
+                   lastReport = now;
+               }
+               if (stop != null){
+                   this.status = stop;
+                   this.lastProgress = snapshot(started, predecessors, queue.size(), start, current);
+                   this.partialPath = buildPath(predecessors, start, current);
+                   return null;
+               }
+           }
+           if (checkpoint != null){
+               checkpoint.maybeWrite(start, queue, predecessors);
+           }
        }
+       this.status = SolveStatus.NO_SOLUTION;
+       this.lastProgress = snapshot(started, predecessors, queue.size(), start, start);
        return null;
    }
 
     /**
-     * This version of the findSolution method is used when there are many possible end configurations
+     * Breadth-first search one level at a time, keeping each level in a CompressedFrontier.
+     * Configurations read back from the frontier are copies of the keys in the predecessors
+     * list, so each one replaces its key when it is expanded, and only one copy of every
+     * visited configuration stays alive.
      * @param start the starting configuration
-     * @return the predecessors list
+     * @param goal checks whether a configuration ends the search
+     * @return the predecessors list, or null if no goal can be reached
      */
-   public HashMap<Configuration, Configuration> findSolution (Configuration start){
-       // BFS find path
-       LinkedList<Configuration> queue = new LinkedList<>();
+   private HashMap<Configuration, Configuration> searchByLevel(EncodableConfiguration start,
+                                                               Predicate<Configuration> goal){
        HashMap<Configuration, Configuration> predecessors = new HashMap<>();
-       queue.add(start);
        predecessors.put(start, start);
-       while (!queue.isEmpty()){
-           Configuration current = queue.remove(0);
-           if (current.isSolution()){
-               endConfig = current;
-               return predecessors;
+       this.partialPath = null;
+       this.foundEnd = null;
+       long started = System.nanoTime();
+       long lastReport = started;
+       int expanded = 0;
+       // the first level is the start itself, since buildPath stops when it reaches that object
+       Collection<Configuration> level = List.of(start);
+       while (!level.isEmpty()){
+           CompressedFrontier next = new CompressedFrontier(start, this.offHeapFrontier);
+           // the frontier is what is left of this level plus the next level
+           long left = level.size();
+           for (Configuration current : level){
+               left--;
+               if (current != start){
+                   predecessors.put(current, predecessors.remove(current));
+               }
+               if (goal.test(current)){
+                   endConfig = current;
+                   this.foundEnd = current;
+                   this.status = SolveStatus.SOLVED;
+                   this.lastProgress = snapshot(started, predecessors, left + next.size(), start, current);
+                   return predecessors;
+               }
+               for (Configuration c : current.getNeighbors()){
+                   if (!predecessors.containsKey(c)){
+                       predecessors.put(c, current);
+                       if (this.pruner == null || !this.pruner.test(c)){
+                           next.add(c);
+                       }
+                       uniqueConfigs++;
+                   }
+               }
+               if (++expanded % CHECK_EVERY == 0){
+                   long now = System.nanoTime();
+                   SolveStatus stop = checkBudget(now - started, predecessors.size());
+                   if (this.progressListener != null && (stop != null || now - lastReport >= this.progressInterval * 1_000_000)){
+                       this.progressListener.update(this, snapshot(started, predecessors, left + next.size(), start, current));
+                       lastReport = now;
+                   }
+                   if (stop != null){
+                       this.status = stop;
+                       this.lastProgress = snapshot(started, predecessors, left + next.size(), start, current);
+                       this.partialPath = buildPath(predecessors, start, current);
+                       return null;
+                   }
+               }
            }
-           for (Configuration c : current.getNeighbors()){
-               if (!predecessors.containsKey(c)){
-                   predecessors.put(c, current);
-                   queue.add(c);
-                   uniqueConfigs++;
+           level = next;
+       }
+       this.status = SolveStatus.NO_SOLUTION;
+       this.lastProgress = snapshot(started, predecessors, 0, start, start);
+       return null;
+   }
+
+    /**
+     * Measure the bytes each visited configuration takes by exploring the first levels of the
+     * search, and project the heap the whole search would need, so a search that can't fit
+     * can be turned down before it starts. Whole levels are explored until enough
+     * configurations have been visited, using the pruner and the kind of frontier this
+     * solver is set up with. The counts of configurations are left as they were.
+     * @param start the starting configuration
+     * @param maxDepth the deepest a configuration can be, or Integer.MAX_VALUE if that isn't known
+     * @param probeStates how many configurations to visit before projecting the rest
+     * @return the report
+     */
+   public HeapReport measureHeap(Configuration start, int maxDepth, long probeStates){
+       int savedTotal = totalConfigs;
+       int savedUnique = uniqueConfigs;
+       HashMap<Configuration, Configuration> predecessors = new HashMap<>();
+       predecessors.put(start, start);
+       List<Long> levels = new ArrayList<>();
+       // one identity set for every sample, so objects shared between configurations count once
+       Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+       long sampledBytes = 0;
+       long samples = 0;
+       List<Configuration> level = List.of(start);
+       long visitedInLevel = 1;
+       while (true){
+           levels.add(visitedInLevel);
+           int stride = Math.max(1, level.size() / HEAP_SAMPLES_PER_LEVEL);
+           for (int i = 0; i < level.size(); i += stride){
+               sampledBytes += ObjectSizes.deepSize(level.get(i), seen);
+               samples++;
+           }
+           if (level.isEmpty() || levels.size() > maxDepth || predecessors.size() >= probeStates){
+               break;
+           }
+           List<Configuration> next = new ArrayList<>();
+           visitedInLevel = 0;
+           for (Configuration current : level){
+               for (Configuration c : current.getNeighbors()){
+                   if (!predecessors.containsKey(c)){
+                       predecessors.put(c, current);
+                       visitedInLevel++;
+                       if (this.pruner == null || !this.pruner.test(c)){
+                           next.add(c);
+                       }
+                   }
                }
            }
+           level = next;
+           if (visitedInLevel == 0){
+               break;
+           }
        }
-        return null;
+       boolean complete = level.isEmpty() || levels.size() > maxDepth;
+       totalConfigs = savedTotal;
+       uniqueConfigs = savedUnique;
+       boolean packed = this.compressedFrontier && this.checkpointFile == null && start instanceof EncodableConfiguration;
+       long frontierEntry = packed
+               // a packed record is at most its length and one byte of shared prefix, and usually less
+               ? ((EncodableConfiguration) start).encode().length + 1
+               : ObjectSizes.linkedListNodeBytes();
+       return new HeapReport(samples == 0 ? 0 : sampledBytes / samples, ObjectSizes.hashMapEntryBytes(), frontierEntry,
+               packed && this.offHeapFrontier, levels, complete, maxDepth);
+   }
+
+    /**
+     * Check the search against its budget and whether its thread was interrupted
+     * @param elapsedNanos how long the search has been running
+     * @param visited how many configurations have been visited
+     * @return the reason to stop, or null to keep going
+     */
+   private SolveStatus checkBudget(long elapsedNanos, long visited){
+       if (Thread.currentThread().isInterrupted()){
+           return SolveStatus.CANCELLED;
+       }
+       if (elapsedNanos / 1_000_000 >= this.budget.getTimeLimitMillis()){
+           return SolveStatus.TIME_LIMIT;
+       }
+       if (visited >= this.budget.getMaxStates()){
+           return SolveStatus.STATE_LIMIT;
+       }
+       if (this.budget.getMaxMemoryBytes() != Long.MAX_VALUE){
+           Runtime runtime = Runtime.getRuntime();
+           if (runtime.totalMemory() - runtime.freeMemory() >= this.budget.getMaxMemoryBytes()){
+               return SolveStatus.MEMORY_LIMIT;
+           }
+       }
+       return null;
+   }
+
+    /**
+     * Take a snapshot of the search
+     * @param started when the search started
+     * @param predecessors the predecessors list
+     * @param frontier the size of the frontier
+     * @param start the starting configuration
+     * @param current the configuration being expanded
+     * @return the snapshot
+     */
+   private SolveProgress snapshot(long started, Map<Configuration, Configuration> predecessors,
+                                  long frontier, Configuration start, Configuration current){
+       // the depth is the number of predecessors between the current configuration and the start
+       int depth = 0;
+       while (current != start){
+           current = predecessors.get(current);
+           depth++;
+       }
+       Runtime runtime = Runtime.getRuntime();
+       return new SolveProgress((System.nanoTime() - started) / 1_000_000, predecessors.size(), frontier,
+               depth, runtime.totalMemory() - runtime.freeMemory());
    }
 
     /**
@@ -90,6 +426,29 @@ public class Solver implements Configuration {
        return path;
    }
 
+    /**
+     * Use the predecessors list from findSolution() to build the shortest path from start to finish,
+     * keeping the configurations instead of converting them to strings
+     * @param predecessors the predecessors list
+     * @param start the starting configuration
+     * @param end the ending configuration
+     * @return the path
+     */
+   public List<Configuration> buildConfigPath(Map<Configuration, Configuration> predecessors,
+                                              Configuration start, Configuration end){
+       List<Configuration> path = null;
+       if (predecessors != null){
+           path = new LinkedList<>();
+           Configuration currentConfig = end;
+           while (currentConfig != start){
+               path.add(0, currentConfig);
+               currentConfig = predecessors.get(currentConfig);
+           }
+           path.add(0, start);
+       }
+       return path;
+   }
+
     /**
      * Checks whether a configuration is a solution or not
      * @return true or false
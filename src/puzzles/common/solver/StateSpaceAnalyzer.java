@@ -0,0 +1,171 @@
+package puzzles.common.solver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * This class goes through the whole reachable state space of a puzzle and reports how it is
+ * shaped: the states at each depth, the branching factor, the dead ends, the goals, and the
+ * narrowest point on the shortest paths to them. It works for any configuration.
+ *
+ * The search goes one level at a time, and each level is expanded in parallel on a
+ * ForkJoinPool into a concurrent visited set. Two passes backwards over the levels follow:
+ * one finds the states on shortest paths to the nearest goals, and the other finds the
+ * states no goal can be reached from. Every level is kept until the report is done, so the
+ * whole state space has to fit in memory.
+ * @author Jake Edelstein
+ */
+public class StateSpaceAnalyzer {
+    private final ForkJoinPool pool;
+
+    /**
+     * @param pool the pool the levels are expanded on
+     */
+    public StateSpaceAnalyzer(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * Create an analyzer that uses the common pool, which has a thread for every processor
+     */
+    public StateSpaceAnalyzer(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Analyze the states reachable from a start, where any configuration that is a solution is a goal
+     * @param start the starting configuration
+     * @return the report
+     */
+    public StateSpaceReport analyze(Configuration start){
+        return analyze(start, Configuration::isSolution);
+    }
+
+    /**
+     * Analyze the states reachable from a start, where an explicit end configuration is the goal
+     * @param start the starting configuration
+     * @param end the end configuration
+     * @return the report
+     */
+    public StateSpaceReport analyze(Configuration start, Configuration end){
+        return analyze(start, end::equals);
+    }
+
+    /**
+     * Analyze on the pool
+     * @param start the starting configuration
+     * @param goal checks whether a configuration is a goal
+     * @return the report
+     */
+    private StateSpaceReport analyze(Configuration start, Predicate<Configuration> goal){
+        return this.pool.submit(() -> run(start, goal)).join();
+    }
+
+    /**
+     * Explore every level, then go back over them for the shortest paths and the dead states
+     */
+    private StateSpaceReport run(Configuration start, Predicate<Configuration> goal){
+        long started = System.nanoTime();
+        Set<Configuration> visited = ConcurrentHashMap.newKeySet();
+        visited.add(start);
+        List<List<Configuration>> levels = new ArrayList<>();
+        LongAdder moves = new LongAdder();
+        LongAdder deadEnds = new LongAdder();
+        LongAdder goals = new LongAdder();
+        int shortest = -1;
+        List<Configuration> level = List.of(start);
+        while (!level.isEmpty()){
+            levels.add(level);
+            if (shortest < 0 && level.parallelStream().anyMatch(goal)){
+                shortest = levels.size() - 1;
+            }
+            level = level.parallelStream().flatMap(c -> {
+                Collection<Configuration> neighbors = c.getNeighbors();
+                moves.add(neighbors.size());
+                if (goal.test(c)){
+                    goals.increment();
+                } else if (neighbors.isEmpty()){
+                    deadEnds.increment();
+                }
+                return neighbors.stream().filter(visited::add);
+            }).collect(Collectors.toList());
+        }
+
+        List<Long> statesPerDepth = new ArrayList<>();
+        for (List<Configuration> l : levels){
+            statesPerDepth.add((long) l.size());
+        }
+        List<Long> widths = shortestPathWidths(levels, goal, shortest);
+        long deadStates = visited.size() - countAlive(levels, goal);
+        return new StateSpaceReport(start.toString(), statesPerDepth, moves.sum(), deadEnds.sum(),
+                deadStates, goals.sum(), shortest, widths, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Count the states at each depth up to the nearest goals that are on a shortest path to
+     * one of them. A state is on one if it is a goal at that depth, or if one of its
+     * neighbors one level deeper is on one.
+     * @param levels the states first reached at each depth
+     * @param goal checks whether a configuration is a goal
+     * @param shortest the depth of the nearest goals, or -1 if there are none
+     * @return the count at each depth from 0 to the nearest goals, empty if there are none
+     */
+    private static List<Long> shortestPathWidths(List<List<Configuration>> levels, Predicate<Configuration> goal,
+                                                 int shortest){
+        List<Long> widths = new ArrayList<>();
+        if (shortest < 0){
+            return widths;
+        }
+        Set<Configuration> onPath = levels.get(shortest).parallelStream().filter(goal)
+                .collect(Collectors.toSet());
+        long[] counts = new long[shortest + 1];
+        counts[shortest] = onPath.size();
+        for (int d = shortest - 1; d >= 0; d--){
+            Set<Configuration> deeper = onPath;
+            onPath = levels.get(d).parallelStream()
+                    .filter(c -> c.getNeighbors().stream().anyMatch(deeper::contains))
+                    .collect(Collectors.toSet());
+            counts[d] = onPath.size();
+        }
+        for (long count : counts){
+            widths.add(count);
+        }
+        return widths;
+    }
+
+    /**
+     * Count the states a goal can be reached from. Moves can lead back to shallower levels in
+     * puzzles that aren't acyclic, so the levels are gone over from the deepest up until a
+     * whole pass finds nothing new.
+     * @param levels the states first reached at each depth
+     * @param goal checks whether a configuration is a goal
+     * @return the number of states a goal can be reached from
+     */
+    private static long countAlive(List<List<Configuration>> levels, Predicate<Configuration> goal){
+        Set<Configuration> alive = ConcurrentHashMap.newKeySet();
+        for (List<Configuration> level : levels){
+            level.parallelStream().filter(goal).forEach(alive::add);
+        }
+        boolean changed = true;
+        while (changed){
+            LongAdder added = new LongAdder();
+            for (int d = levels.size() - 1; d >= 0; d--){
+                levels.get(d).parallelStream()
+                        .filter(c -> !alive.contains(c) && c.getNeighbors().stream().anyMatch(alive::contains))
+                        .forEach(c -> {
+                            alive.add(c);
+                            added.increment();
+                        });
+            }
+            changed = added.sum() > 0;
+        }
+        return alive.size();
+    }
+}
@@ -0,0 +1,156 @@
+package puzzles.common.solver;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The numbers StateSpaceAnalyzer finds about the whole reachable state space of a puzzle,
+ * which can be written as JSON for tools that rank puzzles by difficulty
+ * @author Jake Edelstein
+ */
+public class StateSpaceReport {
+    private final String puzzle;
+    private final List<Long> statesPerDepth;
+    private final long states;
+    private final long moves;
+    private final long deadEnds;
+    private final long deadStates;
+    private final long solutions;
+    private final int shortestSolution;
+    private final List<Long> shortestPathWidths;
+    private final long millis;
+
+    /**
+     * @param puzzle the starting configuration as a string
+     * @param statesPerDepth the number of states first reached at each depth
+     * @param moves the number of moves out of all states together
+     * @param deadEnds the states that aren't goals and have no moves
+     * @param deadStates the states no goal can be reached from
+     * @param solutions the number of goal states
+     * @param shortestSolution the depth of the nearest goal, or -1 if there is none
+     * @param shortestPathWidths the states at each depth that are on some shortest path to a goal
+     * @param millis how long the analysis took
+     */
+    public StateSpaceReport(String puzzle, List<Long> statesPerDepth, long moves, long deadEnds,
+                            long deadStates, long solutions, int shortestSolution,
+                            List<Long> shortestPathWidths, long millis){
+        this.puzzle = puzzle;
+        this.statesPerDepth = statesPerDepth;
+        long states = 0;
+        for (long n : statesPerDepth){
+            states += n;
+        }
+        this.states = states;
+        this.moves = moves;
+        this.deadEnds = deadEnds;
+        this.deadStates = deadStates;
+        this.solutions = solutions;
+        this.shortestSolution = shortestSolution;
+        this.shortestPathWidths = shortestPathWidths;
+        this.millis = millis;
+    }
+
+    /** getters for private values */
+    public List<Long> getStatesPerDepth() {
+        return this.statesPerDepth;
+    }
+
+    public long getStates() {
+        return this.states;
+    }
+
+    public long getSolutions() {
+        return this.solutions;
+    }
+
+    public int getShortestSolution() {
+        return this.shortestSolution;
+    }
+
+    public List<Long> getShortestPathWidths() {
+        return this.shortestPathWidths;
+    }
+
+    /**
+     * @return the average number of moves out of a state
+     */
+    public double getBranchingFactor() {
+        return this.states == 0 ? 0 : (double) this.moves / this.states;
+    }
+
+    /**
+     * @return the fraction of states that aren't goals and have no moves
+     */
+    public double getDeadEndFraction() {
+        return this.states == 0 ? 0 : (double) this.deadEnds / this.states;
+    }
+
+    /**
+     * @return the fraction of states no goal can be reached from
+     */
+    public double getDeadStateFraction() {
+        return this.states == 0 ? 0 : (double) this.deadStates / this.states;
+    }
+
+    /**
+     * Find the narrowest point on the way to the nearest goals: the depth strictly between the
+     * start and the goals with the fewest states on shortest paths
+     * @return the depth, or -1 if the nearest goal is less than 2 moves away
+     */
+    public int getNarrowestDepth() {
+        int narrowest = -1;
+        for (int d = 1; d < this.shortestPathWidths.size() - 1; d++){
+            if (narrowest < 0 || this.shortestPathWidths.get(d) < this.shortestPathWidths.get(narrowest)){
+                narrowest = d;
+            }
+        }
+        return narrowest;
+    }
+
+    /**
+     * @return the report as a JSON object
+     */
+    public String toJson() {
+        int narrowest = getNarrowestDepth();
+        return "{\n"
+                + "  \"puzzle\": " + quote(this.puzzle) + ",\n"
+                + "  \"states\": " + this.states + ",\n"
+                + "  \"statesPerDepth\": " + this.statesPerDepth + ",\n"
+                + "  \"maxDepth\": " + (this.statesPerDepth.size() - 1) + ",\n"
+                + "  \"branchingFactor\": " + String.format(Locale.ROOT, "%.4f", getBranchingFactor()) + ",\n"
+                + "  \"deadEnds\": " + this.deadEnds + ",\n"
+                + "  \"deadEndFraction\": " + String.format(Locale.ROOT, "%.6f", getDeadEndFraction()) + ",\n"
+                + "  \"deadStates\": " + this.deadStates + ",\n"
+                + "  \"deadStateFraction\": " + String.format(Locale.ROOT, "%.6f", getDeadStateFraction()) + ",\n"
+                + "  \"solutions\": " + this.solutions + ",\n"
+                + "  \"shortestSolution\": " + this.shortestSolution + ",\n"
+                + "  \"shortestPathWidths\": " + this.shortestPathWidths + ",\n"
+                + "  \"narrowestDepth\": " + narrowest + ",\n"
+                + "  \"narrowestWidth\": " + (narrowest < 0 ? 0 : this.shortestPathWidths.get(narrowest)) + ",\n"
+                + "  \"millis\": " + this.millis + "\n"
+                + "}";
+    }
+
+    /**
+     * @return a string as a JSON string literal
+     */
+    private static String quote(String s){
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : s.toCharArray()){
+            switch (c){
+                case '"': quoted.append("\\\""); break;
+                case '\\': quoted.append("\\\\"); break;
+                case '\n': quoted.append("\\n"); break;
+                case '\r': quoted.append("\\r"); break;
+                case '\t': quoted.append("\\t"); break;
+                default:
+                    if (c < 0x20){
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
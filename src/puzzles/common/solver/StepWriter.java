@@ -0,0 +1,115 @@
+package puzzles.common.solver;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+/**
+ * This class writes a solve in the same format as the files in output: the puzzle, the
+ * statistics, then each step, with lines ending in CRLF and no line break after the last
+ * one. Steps are taken from an iterator and turned into text one at a time as they are
+ * written, through a large buffer, so a long path is never built up as strings first.
+ *
+ * Steps of one-line puzzles are written as "Step 1: AC", with trailing spaces removed.
+ * Steps of board puzzles are written as "Step 1:" followed by the rows of the board, with
+ * a blank line between steps.
+ * @author Jake Edelstein
+ */
+public class StepWriter implements Closeable {
+    private static final String NEWLINE = "\r\n";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer out;
+    private final boolean boards;
+    /** whether a line has been written, so the next one needs a line break first */
+    private boolean started = false;
+
+    /**
+     * @param out where to write
+     * @param boards true if each step is a board of several lines
+     */
+    public StepWriter(Writer out, boolean boards){
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, BUFFER_SIZE);
+        this.boards = boards;
+    }
+
+    /**
+     * Write one line, or several if the text has line breaks
+     * @param text the text
+     * @throws IOException if writing fails
+     */
+    public void header(String text) throws IOException {
+        for (String line : text.split("\n", -1)){
+            line(line);
+        }
+    }
+
+    /**
+     * Write the statistics of a solve
+     * @param totalConfigs the total configurations
+     * @param uniqueConfigs the unique configurations
+     * @throws IOException if writing fails
+     */
+    public void counts(long totalConfigs, long uniqueConfigs) throws IOException {
+        line("Total configs: " + totalConfigs);
+        line("Unique configs: " + uniqueConfigs);
+    }
+
+    /**
+     * Write every step, calling toString() on each one only when it is written
+     * @param steps the steps, starting with the start
+     * @throws IOException if writing fails
+     */
+    public void steps(Iterator<?> steps) throws IOException {
+        for (int step = 0; steps.hasNext(); step++){
+            String text = steps.next().toString();
+            if (this.boards){
+                if (step != 0){
+                    line("");
+                }
+                line("Step " + step + ":");
+                header(text);
+            } else {
+                line("Step " + step + ": " + text.stripTrailing());
+            }
+        }
+    }
+
+    /**
+     * Write that the puzzle has no solution
+     * @throws IOException if writing fails
+     */
+    public void noSolution() throws IOException {
+        line("No solution");
+    }
+
+    /**
+     * Write a line, putting a line break before it if it isn't the first
+     */
+    private void line(String text) throws IOException {
+        if (this.started){
+            this.out.write(NEWLINE);
+        }
+        this.out.write(text);
+        this.started = true;
+    }
+
+    /**
+     * Write out anything still in the buffer
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    /**
+     * Write out anything still in the buffer and close the writer underneath
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+}
@@ -0,0 +1,172 @@
+package puzzles.common.solver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class remembers the depth at which configurations were reached during an iteration
+ * of IterativeDeepeningSolver, holding at most a fixed number of them. When it is full,
+ * the eviction policy picks which configuration to forget.
+ * @author Jake Edelstein
+ */
+public class TranspositionTable {
+
+    /**
+     * The ways of choosing which configuration to forget when the table is full
+     */
+    public enum EvictionPolicy {
+        /** forget the configuration that was looked up least recently */
+        LRU,
+        /** forget the configuration that was added first */
+        FIFO,
+        /** forget the configuration reached at the greatest depth, since it prunes the least */
+        DEEPEST
+    }
+
+    /**
+     * The depth a configuration was reached at, and in which iteration
+     */
+    private static class Entry {
+        private int depth;
+        private int iteration;
+
+        Entry(int depth, int iteration){
+            this.depth = depth;
+            this.iteration = iteration;
+        }
+    }
+
+    private final int capacity;
+    private final EvictionPolicy policy;
+    private final Map<Configuration, Entry> entries;
+    /** for the DEEPEST policy, the configurations added at each depth, oldest first */
+    private final List<ArrayDeque<Configuration>> byDepth = new ArrayList<>();
+    /** the number of configurations listed in byDepth, including outdated ones */
+    private int listed = 0;
+    private long evictions = 0;
+    /** the number of times a configuration was first reached in an iteration */
+    private long reached = 0;
+
+    /**
+     * Create an empty table
+     * @param capacity the most configurations the table may hold
+     * @param policy how to choose a configuration to forget when the table is full
+     */
+    public TranspositionTable(int capacity, EvictionPolicy policy){
+        this.capacity = capacity;
+        this.policy = policy;
+        if (policy == EvictionPolicy.DEEPEST){
+            this.entries = new HashMap<>();
+        } else {
+            // an access-ordered LinkedHashMap keeps the least recently used entry first
+            this.entries = new LinkedHashMap<>(16, 0.75f, policy == EvictionPolicy.LRU){
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Configuration, Entry> eldest) {
+                    if (size() > TranspositionTable.this.capacity){
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    /**
+     * Record that a configuration was reached, and check whether it was already reached at
+     * the same depth or shallower in this iteration. If it was, everything below it has been
+     * searched with at least as many moves left, so it can be skipped.
+     * @param config the configuration
+     * @param depth the number of moves taken to reach it
+     * @param iteration the current iteration
+     * @return true if the configuration can be skipped
+     */
+    public boolean visit(Configuration config, int depth, int iteration){
+        Entry entry = this.entries.get(config);
+        if (entry != null && entry.iteration == iteration && entry.depth <= depth){
+            return true;
+        }
+        if (entry == null || entry.iteration != iteration){
+            this.reached++;
+        }
+        if (entry != null){
+            entry.depth = depth;
+            entry.iteration = iteration;
+        } else {
+            if (this.policy == EvictionPolicy.DEEPEST && this.entries.size() >= this.capacity){
+                evictDeepest();
+            }
+            this.entries.put(config, new Entry(depth, iteration));
+        }
+        if (this.policy == EvictionPolicy.DEEPEST){
+            while (this.byDepth.size() <= depth){
+                this.byDepth.add(new ArrayDeque<>());
+            }
+            this.byDepth.get(depth).add(config);
+            this.listed++;
+            if (this.listed > 2 * this.capacity){
+                relist();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rebuild the lists of configurations by depth, dropping the outdated ones
+     */
+    private void relist(){
+        for (ArrayDeque<Configuration> queue : this.byDepth){
+            queue.clear();
+        }
+        for (Map.Entry<Configuration, Entry> entry : this.entries.entrySet()){
+            this.byDepth.get(entry.getValue().depth).add(entry.getKey());
+        }
+        this.listed = this.entries.size();
+    }
+
+    /**
+     * Forget the oldest configuration at the greatest depth. Configurations that moved to a
+     * shallower depth are still listed under their old depth, so those are skipped here.
+     */
+    private void evictDeepest(){
+        for (int d = this.byDepth.size() - 1; d >= 0; d--){
+            ArrayDeque<Configuration> queue = this.byDepth.get(d);
+            while (!queue.isEmpty()){
+                Configuration config = queue.poll();
+                this.listed--;
+                Entry entry = this.entries.get(config);
+                if (entry != null && entry.depth == d){
+                    this.entries.remove(config);
+                    this.evictions++;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of configurations in the table
+     */
+    public int size(){
+        return this.entries.size();
+    }
+
+    /**
+     * @return the number of times a configuration was first reached in an iteration, over
+     * all iterations
+     */
+    public long getReached(){
+        return this.reached;
+    }
+
+    /**
+     * @return the number of configurations forgotten because the table was full
+     */
+    public long getEvictions(){
+        return this.evictions;
+    }
+}
@@ -0,0 +1,74 @@
+package puzzles.common.solver;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes non-negative ints 7 bits per byte, so small values take a single byte.
+ * Used by the binary files the solvers write and by the packed chunks of CompressedFrontier.
+ * @author Jake Edelstein
+ */
+class VarInt {
+    /**
+     * @param out where to write
+     * @param value the value to write
+     * @throws IOException if writing fails
+     */
+    static void write(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0){
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * @param in where to read from
+     * @return the value read
+     * @throws IOException if reading fails
+     */
+    static int read(DataInput in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * @param buffer where to write
+     * @param at the index to write at
+     * @param value the value to write
+     * @return the index after the last byte written
+     */
+    static int write(byte[] buffer, int at, int value){
+        while ((value & ~0x7F) != 0){
+            buffer[at++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[at++] = (byte) value;
+        return at;
+    }
+
+    /**
+     * @param buffer where to read from, at its position
+     * @return the value read
+     */
+    static int read(ByteBuffer buffer){
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -1,9 +1,17 @@
 package puzzles.crossing;
 
-import puzzles.common.solver.Configuration;
+import puzzles.common.solver.SolutionCache;
+import puzzles.common.solver.SolutionFile;
 import puzzles.common.solver.Solver;
+import puzzles.common.solver.StateSpaceAnalyzer;
+import puzzles.common.solver.StepWriter;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -11,18 +19,60 @@ import java.util.List;
  * @author Jake Edelstein
  */
 public class Crossing extends Solver{
-    public static void main(String[] args) {
-        // must have 2 arguments
-        if (args.length != 2) {
-            System.out.println(("Usage: java Crossing pups wolves"));
+    /** the usage message, listing the optional modes */
+    private static final String USAGE = "Usage: java Crossing pups wolves [--analyze]"
+            + " [--save solution-file] [--load solution-file] [--text output-file]";
+
+    public static void main(String[] args) throws IOException {
+        // must have 2 arguments, and may ask for an analysis or for other kinds of output
+        boolean analyze = false;
+        Path saveFile = null;
+        Path loadFile = null;
+        Path textFile = null;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--analyze")) {
+                analyze = true;
+            } else if (args[i].equals("--save") && i + 1 < args.length) {
+                saveFile = Path.of(args[++i]);
+            } else if (args[i].equals("--load") && i + 1 < args.length) {
+                loadFile = Path.of(args[++i]);
+            } else if (args[i].equals("--text") && i + 1 < args.length) {
+                textFile = Path.of(args[++i]);
+            } else {
+                args = new String[0];
+            }
+        }
+        if (args.length < 2) {
+            System.out.println(USAGE);
             System.exit(0);
         } else {
             // create initial config
             CrossingConfig config = new CrossingConfig(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
-            Solver crossingSolver = new Solver();
-            HashMap<Configuration, Configuration> predecessors =
-                    crossingSolver.findSolution(config, config.getEnd());
-            List<String> path = crossingSolver.buildPath(predecessors, config, config.getEnd());
+            if (loadFile != null) {
+                // print a saved solution in the format of the output files instead of solving
+                SolutionFile solution = SolutionFile.read(loadFile, config, config.getEnd());
+                StepWriter writer = new StepWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), false);
+                writeText(writer, args[0], args[1], solution.getTotalConfigs(), solution.getUniqueConfigs(),
+                        solution.hasSolution() ? solution.steps(config) : null);
+                writer.flush();
+                return;
+            }
+            if (analyze) {
+                // report the shape of the whole state space as JSON
+                System.out.println(new StateSpaceAnalyzer().analyze(config, config.getEnd()).toJson());
+                return;
+            }
+            // reuse the solution from an earlier run if there is one
+            List<String> path = SolutionCache.solveCached(config, config.getEnd());
+            if (saveFile != null) {
+                SolutionFile.write(saveFile, config, config.getEnd(), path, Solver.totalConfigs, Solver.uniqueConfigs);
+            }
+            if (textFile != null) {
+                try (StepWriter writer = new StepWriter(Files.newBufferedWriter(textFile), false)) {
+                    writeText(writer, args[0], args[1], Solver.totalConfigs, Solver.uniqueConfigs,
+                            path == null ? null : path.iterator());
+                }
+            }
             // display statistics and other info
             System.out.println("Pups: " + args[0] +", Wolves: " + args[1]);
             System.out.println("Total configurations: " + Solver.totalConfigs);
@@ -37,4 +87,25 @@ public class Crossing extends Solver{
             }
         }
     }
+
+    /**
+     * Write a solve in the format of the files in output/crossing
+     * @param writer the writer
+     * @param pups the number of pups, as given
+     * @param wolves the number of wolves, as given
+     * @param totalConfigs the total configurations of the solve
+     * @param uniqueConfigs the unique configurations of the solve
+     * @param steps the steps of the path, or null if there is no solution
+     * @throws IOException if writing fails
+     */
+    private static void writeText(StepWriter writer, String pups, String wolves,
+                                  int totalConfigs, int uniqueConfigs, Iterator<?> steps) throws IOException {
+        writer.header("Pups: " + pups + ", Wolves: " + wolves);
+        writer.counts(totalConfigs, uniqueConfigs);
+        if (steps == null) {
+            writer.noSolution();
+        } else {
+            writer.steps(steps);
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package puzzles.crossing;
 
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.EncodableConfiguration;
 import puzzles.common.solver.Solver;
 
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.LinkedList;
 
@@ -10,7 +12,7 @@ import java.util.LinkedList;
  * This class represents an individual configuration for the crossing puzzle
  * @author Jake Edelstein
  */
-public class CrossingConfig implements Configuration {
+public class CrossingConfig implements EncodableConfiguration {
 
     private int[] config;
     private String boatPosition;
@@ -32,6 +34,13 @@ public class CrossingConfig implements Configuration {
         Solver.totalConfigs++;
     }
 
+    // rebuilt config constructor, not counted as a new config
+    private CrossingConfig(int[] config, String boatPosition, CrossingConfig end){
+        this.config = config;
+        this.boatPosition = boatPosition;
+        this.end = end;
+    }
+
     /**
      * @return the ending configuration
      */
@@ -90,6 +99,35 @@ public class CrossingConfig implements Configuration {
         return neighbors;
     }
 
+    /**
+     * Packs the four counts and the side of the boat into a record
+     * @return the packed record
+     */
+    @Override
+    public byte[] encode() {
+        ByteBuffer record = ByteBuffer.allocate(4 * this.config.length + 1);
+        for (int count : this.config){
+            record.putInt(count);
+        }
+        record.put((byte) (this.boatPosition.equals("left") ? 0 : 1));
+        return record.array();
+    }
+
+    /**
+     * Rebuilds a configuration for the same puzzle as this one from a packed record
+     * @param record the packed record
+     * @return the configuration stored in the record
+     */
+    @Override
+    public CrossingConfig decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int[] counts = new int[this.config.length];
+        for (int i = 0; i < counts.length; i++){
+            counts[i] = buffer.getInt();
+        }
+        return new CrossingConfig(counts, buffer.get() == 0 ? "left" : "right", this.end);
+    }
+
     /**
      * Checks to see if two CrossingConfig objects are equal
      * @param other the other object
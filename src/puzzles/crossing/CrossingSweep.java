@@ -0,0 +1,243 @@
+package puzzles.crossing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * This class solves every crossing puzzle in a rectangle of pups and wolves in one run and
+ * writes each one to its own file in the same format as output/crossing, instead of starting
+ * a new JVM and a new Solver for every pair.
+ *
+ * A state of a puzzle with P pups and W wolves is the pups and wolves on the left and the
+ * side of the boat, so it is numbered densely as (leftPups * (W + 1) + leftWolves) * 2 + boat
+ * and the search uses int arrays instead of config objects and a HashMap. Moving things
+ * across never changes the totals, so puzzles with different totals share no states, but
+ * every puzzle in a row of the rectangle has the same number of pups and fits in arrays
+ * sized for the largest one. Each row gets its own arrays and rows run in parallel.
+ * Arrays are never cleared between puzzles: a state only counts as seen if it was marked
+ * by the puzzle being solved.
+ *
+ * Moves are tried in the order one pup, two pups, one wolf, which gives the same paths and
+ * the same counts as the files in output/crossing: the total is the start plus every
+ * neighbor made, and the unique count is every state reached, start included.
+ * @author Jake Edelstein
+ */
+public class CrossingSweep {
+    /** the side of the boat in a state number */
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+
+    private final int maxWolves;
+    /** the state each state was first reached from */
+    private final int[] predecessors;
+    /** the puzzle that last marked each state as seen */
+    private final int[] seenBy;
+    private final int[] queue;
+    /** the number of puzzles solved with these arrays, used to mark states as seen */
+    private int puzzle = 0;
+    /** the statistics of the last puzzle solved */
+    private long totalConfigs;
+    private long uniqueConfigs;
+
+    /**
+     * Create arrays big enough for every puzzle with at most this many pups and wolves
+     * @param maxPups the most pups
+     * @param maxWolves the most wolves
+     */
+    CrossingSweep(int maxPups, int maxWolves){
+        this.maxWolves = maxWolves;
+        int states = (maxPups + 1) * (maxWolves + 1) * 2;
+        this.predecessors = new int[states];
+        this.seenBy = new int[states];
+        this.queue = new int[states];
+    }
+
+    /**
+     * Solve one puzzle with a breadth-first search over state numbers
+     * @param pups the number of pups
+     * @param wolves the number of wolves
+     * @return the states of a shortest path from the start to the end, or null if there is none
+     */
+    int[] solve(int pups, int wolves){
+        if (wolves > this.maxWolves || (pups + 1) * (wolves + 1) * 2 > this.queue.length){
+            throw new IllegalArgumentException("Puzzle is bigger than the sweep");
+        }
+        int mark = ++this.puzzle;
+        int stride = wolves + 1;
+        int start = (pups * stride + wolves) * 2 + LEFT;
+        int end = RIGHT;
+        int head = 0;
+        int tail = 0;
+        this.queue[tail++] = start;
+        this.seenBy[start] = mark;
+        this.predecessors[start] = start;
+        long made = 0;
+        int[] neighbors = new int[3];
+        while (head < tail){
+            int current = this.queue[head++];
+            if (current == end){
+                this.totalConfigs = made + 1;
+                this.uniqueConfigs = tail;
+                return path(start, end);
+            }
+            int count = neighbors(current, pups, wolves, neighbors);
+            made += count;
+            for (int i = 0; i < count; i++){
+                int next = neighbors[i];
+                if (this.seenBy[next] != mark){
+                    this.seenBy[next] = mark;
+                    this.predecessors[next] = current;
+                    this.queue[tail++] = next;
+                }
+            }
+        }
+        this.totalConfigs = made + 1;
+        this.uniqueConfigs = tail;
+        return null;
+    }
+
+    /**
+     * Find the states one boat trip away
+     * @param state the state number
+     * @param pups the number of pups in the puzzle
+     * @param wolves the number of wolves in the puzzle
+     * @param out where the neighbors are written
+     * @return the number of neighbors
+     */
+    private static int neighbors(int state, int pups, int wolves, int[] out){
+        int stride = wolves + 1;
+        int boat = state & 1;
+        int leftPups = (state >> 1) / stride;
+        int leftWolves = (state >> 1) % stride;
+        // the pups and wolves on the side of the boat, and which way they move
+        int boatPups = boat == LEFT ? leftPups : pups - leftPups;
+        int boatWolves = boat == LEFT ? leftWolves : wolves - leftWolves;
+        int direction = boat == LEFT ? -1 : 1;
+        int other = 1 - boat;
+        int count = 0;
+        if (boatPups >= 1){
+            out[count++] = ((leftPups + direction) * stride + leftWolves) * 2 + other;
+        }
+        if (boatPups >= 2){
+            out[count++] = ((leftPups + 2 * direction) * stride + leftWolves) * 2 + other;
+        }
+        if (boatWolves >= 1){
+            out[count++] = (leftPups * stride + leftWolves + direction) * 2 + other;
+        }
+        return count;
+    }
+
+    /**
+     * @return the states from the start to the end, following the predecessors back
+     */
+    private int[] path(int start, int end){
+        int length = 1;
+        for (int state = end; state != start; state = this.predecessors[state]){
+            length++;
+        }
+        int[] path = new int[length];
+        int state = end;
+        for (int i = length - 1; i >= 0; i--){
+            path[i] = state;
+            state = this.predecessors[state];
+        }
+        return path;
+    }
+
+    /**
+     * Write a state the same way as CrossingConfig.toString(), without the trailing spaces
+     * @return the state as a string
+     */
+    private static String format(int state, int pups, int wolves){
+        int stride = wolves + 1;
+        int leftPups = (state >> 1) / stride;
+        int leftWolves = (state >> 1) % stride;
+        String sides = "left=[" + leftPups + ", " + leftWolves + "], right=["
+                + (pups - leftPups) + ", " + (wolves - leftWolves) + "]";
+        return (state & 1) == LEFT ? "(BOAT) " + sides : "       " + sides + "  (BOAT)";
+    }
+
+    /**
+     * Solve one puzzle and write it in the format of output/crossing
+     * @param pups the number of pups
+     * @param wolves the number of wolves
+     * @param dir the directory to write to
+     * @throws IOException if the file can't be written
+     */
+    void write(int pups, int wolves, Path dir) throws IOException {
+        int[] path = solve(pups, wolves);
+        StringBuilder s = new StringBuilder();
+        s.append("Pups: ").append(pups).append(", Wolves: ").append(wolves).append("\r\n");
+        s.append("Total configs: ").append(this.totalConfigs).append("\r\n");
+        s.append("Unique configs: ").append(this.uniqueConfigs).append("\r\n");
+        if (path == null){
+            s.append("No solution");
+        } else {
+            for (int step = 0; step < path.length; step++){
+                if (step != 0){
+                    s.append("\r\n");
+                }
+                s.append("Step ").append(step).append(": ").append(format(path[step], pups, wolves));
+            }
+        }
+        Path file = dir.resolve("crossing-" + pups + "-" + wolves + "-out.txt");
+        Files.write(file, s.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Solve every puzzle in a rectangle, one row of pups at a time in parallel
+     * @param minPups the fewest pups
+     * @param maxPups the most pups
+     * @param minWolves the fewest wolves
+     * @param maxWolves the most wolves
+     * @param dir the directory to write to
+     * @return the number of files written
+     * @throws IOException if a file can't be written
+     */
+    public static int sweep(int minPups, int maxPups, int minWolves, int maxWolves, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        AtomicInteger written = new AtomicInteger();
+        try {
+            IntStream.rangeClosed(minPups, maxPups).parallel().forEach(pups -> {
+                CrossingSweep row = new CrossingSweep(pups, maxWolves);
+                for (int wolves = minWolves; wolves <= maxWolves; wolves++){
+                    try {
+                        row.write(pups, wolves, dir);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    written.incrementAndGet();
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return written.get();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3 && args.length != 4 && args.length != 5) {
+            System.out.println("Usage: java CrossingSweep [minPups minWolves] maxPups maxWolves [directory]");
+            System.exit(0);
+        }
+        int minPups = 0;
+        int minWolves = 0;
+        int at = 0;
+        if (args.length >= 4) {
+            minPups = Integer.parseInt(args[at++]);
+            minWolves = Integer.parseInt(args[at++]);
+        }
+        int maxPups = Integer.parseInt(args[at++]);
+        int maxWolves = Integer.parseInt(args[at++]);
+        Path dir = Path.of(at < args.length ? args[at] : "crossing-sweep");
+        long started = System.nanoTime();
+        int written = sweep(minPups, maxPups, minWolves, maxWolves, dir);
+        System.out.println("Wrote " + written + " puzzles to " + dir + " in "
+                + (System.nanoTime() - started) / 1_000_000 + " ms");
+    }
+}
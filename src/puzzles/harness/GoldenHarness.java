@@ -0,0 +1,452 @@
+package puzzles.harness;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Solver;
+import puzzles.crossing.CrossingConfig;
+import puzzles.hoppers.model.HoppersConfig;
+import puzzles.hoppers.ptui.ReplayEngine;
+import puzzles.hoppers.solver.HoppersPruner;
+import puzzles.strings.StringsConfig;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class runs every puzzle that has an expected output in output/hoppers, output/crossing
+ * and output/strings through a Solver and checks the answer against that file. It also
+ * measures the time, the configurations made, and the bytes allocated by each solve, and
+ * compares them to a saved baseline.
+ *
+ * Puzzles often have several shortest paths, and the expected outputs were not all made by
+ * the current search, so a path passes if it has the same number of steps as the expected
+ * one, starts and ends on the same configurations, and every step is a move from the one
+ * before. Paths that also match step for step are reported as exact. A puzzle with no
+ * solution has to have none. Every hoppers board is also solved a second time with a
+ * HoppersPruner, as hoppers-N-pruned, since pruning must never lose a shortest path, and
+ * a third time with a compressed frontier, as hoppers-N-compressed. A compressed solve
+ * trades time for memory, but also counts as worse when it takes more than
+ * MAX_MODE_SLOWDOWN times as long as the plain solve of the same board, and at least
+ * MIN_MODE_SLOWDOWN_MILLIS longer.
+ *
+ * Each case also checks that hashCode() spreads the configurations near the start: at
+ * least MIN_DISTINCT_HASHES of the first HASH_PROBE_STATES reached must have different
+ * hashes, or every hash table in the solvers slows down.
+ *
+ * The recorded PTUI sessions in the input directory are replayed with ReplayEngine and
+ * have to match their transcripts.
+ *
+ * The baseline is output/baseline.properties, recorded with --update. Without a baseline
+ * file the harness stops with a message instead of passing with nothing to compare, and
+ * cases missing from the baseline are counted in the summary.
+ *
+ * A result is worse than the baseline when it goes over it by more than the threshold,
+ * as a fraction of the baseline. Times under a few milliseconds are too noisy to compare,
+ * so a time also has to go over by at least MIN_SLOWDOWN_MILLIS. The best time of several
+ * runs can be taken with --repeat.
+ *
+ * Usage: java GoldenHarness [--baseline file] [--threshold fraction] [--repeat runs]
+ *        [--only regex] [--update]
+ * @author Jake Edelstein
+ */
+public class GoldenHarness {
+    /** the smallest slowdown counted as worse, since short solves are mostly noise */
+    private static final long MIN_SLOWDOWN_MILLIS = 20;
+    /** how many times as long as the plain solve a compressed solve may take */
+    private static final double MAX_MODE_SLOWDOWN = 4;
+    /** the smallest slowdown against the plain solve counted as worse, since packing has a fixed cost */
+    private static final long MIN_MODE_SLOWDOWN_MILLIS = 100;
+    /** how many configurations the hash check visits */
+    private static final int HASH_PROBE_STATES = 50_000;
+    /** the smallest fraction of those configurations that must have different hashes */
+    private static final double MIN_DISTINCT_HASHES = 0.99;
+    private static final Pattern HOPPERS = Pattern.compile("hoppers-(\\d+)-out\\.txt");
+    private static final Pattern CROSSING = Pattern.compile("crossing-(\\d+)-(\\d+)-out\\.txt");
+    private static final Pattern STRINGS = Pattern.compile("strings-([^-]+)-([^-]+)-out\\.txt");
+
+    /**
+     * A puzzle with an expected output
+     */
+    private static class Case {
+        private final String name;
+        private final Path golden;
+        /** true for puzzles whose steps are boards of several lines */
+        private final boolean boards;
+        private final Maker maker;
+        /** sets up the solver for the starting configuration, or null for a plain solve */
+        private final BiConsumer<Solver, Configuration> setup;
+        /** the case whose time this one is held to, or null */
+        private final String plain;
+
+        Case(String name, Path golden, boolean boards, Maker maker,
+             BiConsumer<Solver, Configuration> setup, String plain){
+            this.name = name;
+            this.golden = golden;
+            this.boards = boards;
+            this.maker = maker;
+            this.setup = setup;
+            this.plain = plain;
+        }
+    }
+
+    /**
+     * Makes the starting configuration of a case, and its end if it has one
+     */
+    private interface Maker {
+        Configuration[] make() throws IOException;
+    }
+
+    /**
+     * What one case measured
+     */
+    private static class Result {
+        private long millis = Long.MAX_VALUE;
+        private long states;
+        private long bytes;
+        private String failure = null;
+        private boolean exact;
+    }
+
+    /**
+     * Find every puzzle with an expected output
+     * @param output the output directory
+     * @param data the data directory, which holds the hoppers boards
+     * @return the cases, in order of their names within each puzzle
+     * @throws IOException if a directory can't be listed
+     */
+    private static List<Case> findCases(Path output, Path data) throws IOException {
+        List<Case> cases = new ArrayList<>();
+        for (Path golden : list(output.resolve("hoppers"))){
+            var m = HOPPERS.matcher(golden.getFileName().toString());
+            if (m.matches()){
+                Path board = data.resolve("hoppers").resolve("hoppers-" + m.group(1) + ".txt");
+                Maker maker = () -> new Configuration[]{new HoppersConfig(board.toString()), null};
+                String name = "hoppers-" + m.group(1);
+                cases.add(new Case(name, golden, true, maker, null, null));
+                cases.add(new Case(name + "-pruned", golden, true, maker,
+                        (solver, start) -> solver.setPruner(new HoppersPruner((HoppersConfig) start)), null));
+                cases.add(new Case(name + "-compressed", golden, true, maker,
+                        (solver, start) -> solver.setCompressedFrontier(true, false), name));
+            }
+        }
+        for (Path golden : list(output.resolve("crossing"))){
+            var m = CROSSING.matcher(golden.getFileName().toString());
+            if (m.matches()){
+                int pups = Integer.parseInt(m.group(1));
+                int wolves = Integer.parseInt(m.group(2));
+                cases.add(new Case("crossing-" + pups + "-" + wolves, golden, false, () -> {
+                    CrossingConfig start = new CrossingConfig(pups, wolves);
+                    return new Configuration[]{start, start.getEnd()};
+                }, null, null));
+            }
+        }
+        for (Path golden : list(output.resolve("strings"))){
+            var m = STRINGS.matcher(golden.getFileName().toString());
+            if (m.matches()){
+                String from = m.group(1);
+                String to = m.group(2);
+                cases.add(new Case("strings-" + from + "-" + to, golden, false, () -> {
+                    StringsConfig start = new StringsConfig(from, to);
+                    return new Configuration[]{start, start.getEnd()};
+                }, null, null));
+            }
+        }
+        return cases;
+    }
+
+    /**
+     * @return the files in a directory, sorted, or none if it doesn't exist
+     */
+    private static List<Path> list(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)){
+            return List.of();
+        }
+        try (Stream<Path> listing = Files.list(dir)){
+            return listing.sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Read the steps of an expected output
+     * @param golden the expected output
+     * @param boards true if each step is a board of several lines
+     * @return the steps with trailing spaces removed, or null if it says there is no solution
+     * @throws IOException if the file can't be read
+     */
+    static List<String> readSteps(Path golden, boolean boards) throws IOException {
+        List<String> lines = Files.readAllLines(golden, StandardCharsets.UTF_8);
+        if (lines.stream().anyMatch(line -> line.trim().equals("No solution"))){
+            return null;
+        }
+        List<String> steps = new ArrayList<>();
+        StringBuilder board = null;
+        for (String line : lines){
+            if (line.startsWith("Step ")){
+                if (board != null){
+                    steps.add(board.toString());
+                }
+                // the step number is followed by one space, and crossing steps may start with more
+                String rest = line.substring(line.indexOf(':') + 1).stripTrailing();
+                rest = rest.startsWith(" ") ? rest.substring(1) : rest;
+                if (boards){
+                    board = new StringBuilder();
+                } else {
+                    steps.add(rest);
+                }
+            } else if (board != null && !line.isBlank()){
+                if (board.length() > 0){
+                    board.append('\n');
+                }
+                board.append(line.stripTrailing());
+            }
+        }
+        if (board != null){
+            steps.add(board.toString());
+        }
+        return steps;
+    }
+
+    /**
+     * Solve a case and check it against its expected output
+     * @param c the case
+     * @param repeat how many times to solve it, keeping the best time
+     * @return what was measured
+     */
+    private static Result run(Case c, int repeat){
+        Result result = new Result();
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        try {
+            List<String> expected = readSteps(c.golden, c.boards);
+            for (int run = 0; run < repeat; run++){
+                Solver.totalConfigs = 0;
+                Solver.uniqueConfigs = 0;
+                long allocated = threads.getThreadAllocatedBytes(thread);
+                long started = System.nanoTime();
+                Configuration[] puzzle = c.maker.make();
+                Solver solver = new Solver();
+                if (c.setup != null){
+                    c.setup.accept(solver, puzzle[0]);
+                }
+                Map<Configuration, Configuration> predecessors = puzzle[1] == null
+                        ? solver.findSolution(puzzle[0]) : solver.findSolution(puzzle[0], puzzle[1]);
+                List<Configuration> path = solver.buildConfigPath(predecessors, puzzle[0], solver.getEndConfig());
+                result.millis = Math.min(result.millis, (System.nanoTime() - started) / 1_000_000);
+                result.bytes = threads.getThreadAllocatedBytes(thread) - allocated;
+                result.states = Solver.totalConfigs;
+                if (run == 0){
+                    check(result, expected, path, puzzle[1]);
+                    if (result.failure == null){
+                        result.failure = checkHashes(puzzle[0]);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            result.failure = e.toString();
+        }
+        return result;
+    }
+
+    /**
+     * Check a path against the expected steps, setting the failure of the result if it doesn't pass.
+     * Hoppers boards can be solved with the red frog on different pads, so a path without an end
+     * configuration only has to end on a solution.
+     */
+    private static void check(Result result, List<String> expected, List<Configuration> path, Configuration end){
+        if (expected == null || path == null){
+            if ((expected == null) != (path == null)){
+                result.failure = expected == null ? "found a solution, expected none" : "found no solution";
+            }
+            result.exact = result.failure == null;
+            return;
+        }
+        List<String> steps = new ArrayList<>();
+        for (Configuration step : path){
+            steps.add(step.toString().lines().map(String::stripTrailing).collect(Collectors.joining("\n")));
+        }
+        if (steps.size() != expected.size()){
+            result.failure = (steps.size() - 1) + " moves, expected " + (expected.size() - 1);
+        } else if (!steps.get(0).equals(expected.get(0))){
+            result.failure = "starts on a different configuration";
+        } else if (end == null ? !path.get(path.size() - 1).isSolution() : !path.get(path.size() - 1).equals(end)){
+            result.failure = "doesn't end on a solution";
+        } else if (end != null && !steps.get(steps.size() - 1).equals(expected.get(expected.size() - 1))){
+            result.failure = "ends on a different configuration";
+        } else {
+            for (int i = 1; i < path.size(); i++){
+                Configuration next = path.get(i);
+                if (path.get(i - 1).getNeighbors().stream().noneMatch(next::equals)){
+                    result.failure = "step " + i + " is not a move";
+                    return;
+                }
+            }
+            result.exact = steps.equals(expected);
+        }
+    }
+
+    /**
+     * Visit configurations breadth first from the start and count their different hashes
+     * @param start the starting configuration
+     * @return a description of the failure, or null if the hashes are spread well enough
+     */
+    static String checkHashes(Configuration start){
+        int savedTotal = Solver.totalConfigs;
+        int savedUnique = Solver.uniqueConfigs;
+        Set<Configuration> seen = new HashSet<>();
+        Set<Integer> hashes = new HashSet<>();
+        ArrayDeque<Configuration> queue = new ArrayDeque<>();
+        seen.add(start);
+        queue.add(start);
+        while (!queue.isEmpty() && seen.size() < HASH_PROBE_STATES){
+            for (Configuration c : queue.poll().getNeighbors()){
+                if (seen.size() < HASH_PROBE_STATES && seen.add(c)){
+                    queue.add(c);
+                }
+            }
+        }
+        for (Configuration c : seen){
+            hashes.add(c.hashCode());
+        }
+        Solver.totalConfigs = savedTotal;
+        Solver.uniqueConfigs = savedUnique;
+        if (hashes.size() < seen.size() * MIN_DISTINCT_HASHES){
+            return "only " + hashes.size() + " different hashes for " + seen.size() + " configurations";
+        }
+        return null;
+    }
+
+    /**
+     * Compare a measure to its baseline
+     * @return a description of the regression, or null if it isn't worse by more than the threshold
+     */
+    private static String compare(String measure, long value, String baseline, double threshold, long slack){
+        if (baseline == null){
+            return null;
+        }
+        long base = Long.parseLong(baseline);
+        if (value > base * (1 + threshold) && value - base > slack){
+            return String.format(Locale.ROOT, "%s %d, baseline %d (+%.0f%%)", measure, value, base,
+                    base == 0 ? 100.0 : 100.0 * (value - base) / base);
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path baselineFile = Path.of("output", "baseline.properties");
+        double threshold = 0.25;
+        int repeat = 1;
+        Pattern only = null;
+        boolean update = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--baseline") && i + 1 < args.length) {
+                baselineFile = Path.of(args[++i]);
+            } else if (args[i].equals("--threshold") && i + 1 < args.length) {
+                threshold = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--repeat") && i + 1 < args.length) {
+                repeat = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--only") && i + 1 < args.length) {
+                only = Pattern.compile(args[++i]);
+            } else if (args[i].equals("--update")) {
+                update = true;
+            } else {
+                System.out.println("Usage: java GoldenHarness [--baseline file] [--threshold fraction]"
+                        + " [--repeat runs] [--only regex] [--update]");
+                System.exit(0);
+            }
+        }
+        Properties baseline = new Properties();
+        if (Files.exists(baselineFile)) {
+            try (Reader in = Files.newBufferedReader(baselineFile)) {
+                baseline.load(in);
+            }
+        } else if (!update) {
+            System.out.println("No baseline at " + baselineFile + ", record one with --update"
+                    + " or name another file with --baseline");
+            System.exit(1);
+        }
+        Map<String, String> measured = new TreeMap<>();
+        Map<String, Integer> failures = new HashMap<>();
+        int regressions = 0;
+        int unrecorded = 0;
+        System.out.printf(Locale.ROOT, "%-24s %-8s %10s %12s %14s%n", "puzzle", "path", "ms", "configs", "bytes");
+        for (Case c : findCases(Path.of("output"), Path.of("data"))) {
+            if (only != null && !only.matcher(c.name).find()) {
+                continue;
+            }
+            Result r = run(c, repeat);
+            String path = r.failure != null ? "FAIL" : r.exact ? "exact" : "same";
+            System.out.printf(Locale.ROOT, "%-24s %-8s %10d %12d %14d%n", c.name, path, r.millis, r.states, r.bytes);
+            if (r.failure != null) {
+                System.out.println("    " + r.failure);
+                failures.merge(c.name, 1, Integer::sum);
+                continue;
+            }
+            if (!baseline.containsKey(c.name + ".millis")) {
+                unrecorded++;
+            }
+            measured.put(c.name + ".millis", Long.toString(r.millis));
+            measured.put(c.name + ".configs", Long.toString(r.states));
+            measured.put(c.name + ".bytes", Long.toString(r.bytes));
+            for (String regression : new String[]{
+                    compare("ms", r.millis, baseline.getProperty(c.name + ".millis"), threshold, MIN_SLOWDOWN_MILLIS),
+                    compare("configs", r.states, baseline.getProperty(c.name + ".configs"), threshold, 0),
+                    compare("bytes", r.bytes, baseline.getProperty(c.name + ".bytes"), threshold, 0),
+                    c.plain == null ? null : compare("ms against " + c.plain, r.millis, measured.get(c.plain + ".millis"),
+                            MAX_MODE_SLOWDOWN - 1, MIN_MODE_SLOWDOWN_MILLIS)}) {
+                if (regression != null) {
+                    System.out.println("    worse: " + regression);
+                    regressions++;
+                }
+            }
+        }
+        ReplayEngine replayEngine = new ReplayEngine(Path.of("data", "hoppers"), false);
+        Path sessions = Path.of("input");
+        for (Path script : Files.isDirectory(sessions) ? ReplayEngine.findScripts(List.of(sessions)) : List.<Path>of()) {
+            String name = script.getFileName().toString();
+            if (only != null && !only.matcher(name).find()) {
+                continue;
+            }
+            ReplayEngine.Result r = replayEngine.replay(script);
+            System.out.printf(Locale.ROOT, "%-24s %s%n", name, r.isPassed() ? "exact" : "FAIL");
+            if (!r.isPassed()) {
+                System.out.println("    " + r.getMessage());
+                failures.merge(name, 1, Integer::sum);
+            }
+        }
+        if (update) {
+            // keep the baselines of cases that weren't run this time
+            Properties saved = new Properties();
+            saved.putAll(baseline);
+            saved.putAll(measured);
+            try (Writer out = Files.newBufferedWriter(baselineFile)) {
+                saved.store(out, "GoldenHarness baseline");
+            }
+            System.out.println("Baseline written to " + baselineFile);
+        }
+        System.out.println(failures.size() + " wrong, " + regressions + " worse than the baseline (threshold "
+                + Math.round(threshold * 100) + "%)" + (unrecorded > 0 && !update ? ", " + unrecorded
+                + " not in the baseline" : ""));
+        if (!failures.isEmpty() || regressions > 0 && !update) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package puzzles.hoppers.model;
+
+import puzzles.common.Coordinates;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class holds everything about a hoppers puzzle that never changes during a game: the
+ * size of the board, which cells are lily pads, every jump that can be made from each pad,
+ * and the starting frogs. It is read-only after it is built, so every GameSession playing
+ * the same puzzle shares one copy and only keeps its own frogs, one byte per pad.
+ * @author Jake Edelstein
+ */
+public class BoardGeometry {
+    /** what can be on a pad, as stored in a session */
+    public static final byte EMPTY = 0;
+    public static final byte GREEN = 1;
+    public static final byte RED = 2;
+
+    /** the row and column changes of the 8 jumps, in the same order as HoppersConfig.getNeighbors() */
+    private static final int[][] JUMPS = {{-4, 0}, {4, 0}, {0, 4}, {0, -4}, {-2, 2}, {2, 2}, {-2, -2}, {2, -2}};
+
+    /** one geometry per puzzle file, shared by every session of it */
+    private static final ConcurrentHashMap<String, BoardGeometry> shared = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    /** tells geometries apart in keys */
+    private final int id = nextId.getAndIncrement();
+
+    private final int numRows;
+    private final int numCols;
+    /** the pad number of each cell, row by row, or -1 for water */
+    private final int[] padAt;
+    /** the cell of each pad */
+    private final int[] cellOf;
+    /** for each pad, pairs of the pad jumped over and the pad landed on */
+    private final int[][] jumps;
+    /** the frogs at the start of the puzzle */
+    private final byte[] startPads;
+
+    /**
+     * Build the geometry of a puzzle from its starting configuration
+     * @param start the starting configuration
+     */
+    public BoardGeometry(HoppersConfig start){
+        this.numRows = start.getNumRows();
+        this.numCols = start.getNumCols();
+        char[][] grid = start.getGrid();
+        this.padAt = new int[this.numRows * this.numCols];
+        List<Integer> cells = new ArrayList<>();
+        for (int r = 0; r < this.numRows; r++){
+            for (int c = 0; c < this.numCols; c++){
+                if (grid[r][c] == HoppersConfig.WATER){
+                    this.padAt[r * this.numCols + c] = -1;
+                } else {
+                    this.padAt[r * this.numCols + c] = cells.size();
+                    cells.add(r * this.numCols + c);
+                }
+            }
+        }
+        this.cellOf = new int[cells.size()];
+        this.startPads = new byte[cells.size()];
+        this.jumps = new int[cells.size()][];
+        for (int pad = 0; pad < this.cellOf.length; pad++){
+            int cell = cells.get(pad);
+            this.cellOf[pad] = cell;
+            this.startPads[pad] = toPad(grid[cell / this.numCols][cell % this.numCols]);
+            // keep only the jumps whose middle and landing cells are on the board and not water
+            int r = cell / this.numCols;
+            int c = cell % this.numCols;
+            List<Integer> pairs = new ArrayList<>();
+            for (int[] jump : JUMPS){
+                int over = padAt(r + jump[0] / 2, c + jump[1] / 2);
+                int land = padAt(r + jump[0], c + jump[1]);
+                if (over >= 0 && land >= 0){
+                    pairs.add(over);
+                    pairs.add(land);
+                }
+            }
+            this.jumps[pad] = pairs.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Get the shared geometry of a puzzle file, reading it the first time
+     * @param filename the puzzle file
+     * @return the geometry
+     * @throws IOException if the file can't be read
+     */
+    public static BoardGeometry of(String filename) throws IOException {
+        BoardGeometry geometry = shared.get(filename);
+        if (geometry == null){
+            geometry = new BoardGeometry(new HoppersConfig(filename));
+            BoardGeometry other = shared.putIfAbsent(filename, geometry);
+            if (other != null){
+                geometry = other;
+            }
+        }
+        return geometry;
+    }
+
+    /**
+     * @param cell a cell character from a hoppers file
+     * @return what is on the pad
+     */
+    private static byte toPad(char cell){
+        if (cell == HoppersConfig.GREEN_FROG){
+            return GREEN;
+        } else if (cell == HoppersConfig.RED_FROG){
+            return RED;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * @param pad what is on a pad
+     * @return the cell character for it in a hoppers file
+     */
+    public static char toCell(byte pad){
+        if (pad == GREEN){
+            return HoppersConfig.GREEN_FROG;
+        } else if (pad == RED){
+            return HoppersConfig.RED_FROG;
+        }
+        return HoppersConfig.NO_FROG;
+    }
+
+    /**
+     * @param r the row
+     * @param c the column
+     * @return the pad number of the cell, or -1 if it is water or off the board
+     */
+    public int padAt(int r, int c){
+        if (r < 0 || c < 0 || r >= this.numRows || c >= this.numCols){
+            return -1;
+        }
+        return this.padAt[r * this.numCols + c];
+    }
+
+    /**
+     * @param pad a pad number
+     * @return the coordinates of the pad
+     */
+    public Coordinates coordinates(int pad){
+        return new Coordinates(this.cellOf[pad] / this.numCols, this.cellOf[pad] % this.numCols);
+    }
+
+    /**
+     * Find the pad jumped over by a jump
+     * @param from the pad jumped from
+     * @param to the pad landed on
+     * @return the pad jumped over, or -1 if there is no such jump
+     */
+    public int over(int from, int to){
+        int[] pairs = this.jumps[from];
+        for (int i = 0; i < pairs.length; i += 2){
+            if (pairs[i + 1] == to){
+                return pairs[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Build a configuration from the frogs of a session
+     * @param pads what is on each pad
+     * @return the configuration
+     */
+    public HoppersConfig toConfig(byte[] pads){
+        char[][] grid = new char[this.numRows][this.numCols];
+        for (int r = 0; r < this.numRows; r++){
+            for (int c = 0; c < this.numCols; c++){
+                int pad = this.padAt[r * this.numCols + c];
+                grid[r][c] = pad < 0 ? HoppersConfig.WATER : toCell(pads[pad]);
+            }
+        }
+        return new HoppersConfig(this.numRows, this.numCols, grid);
+    }
+
+    /**
+     * Read the frogs of a session back out of a configuration of this puzzle
+     * @param config the configuration
+     * @return what is on each pad
+     */
+    public byte[] toPads(HoppersConfig config){
+        byte[] pads = new byte[this.cellOf.length];
+        char[][] grid = config.getGrid();
+        for (int pad = 0; pad < pads.length; pad++){
+            pads[pad] = toPad(grid[this.cellOf[pad] / this.numCols][this.cellOf[pad] % this.numCols]);
+        }
+        return pads;
+    }
+
+    /** getters for private values */
+    public int getId() {
+        return this.id;
+    }
+
+    public int getNumRows() {
+        return this.numRows;
+    }
+
+    public int getNumCols() {
+        return this.numCols;
+    }
+
+    public int getNumPads() {
+        return this.cellOf.length;
+    }
+
+    /**
+     * @return a copy of the frogs at the start of the puzzle
+     */
+    public byte[] getStartPads() {
+        return this.startPads.clone();
+    }
+}
@@ -0,0 +1,154 @@
+package puzzles.hoppers.model;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * This class is one player's game in a SessionEngine. It keeps only what changes during a
+ * game: the frogs, one byte per pad, and the selected pad. Everything else comes from the
+ * BoardGeometry shared by every session of the same puzzle. The messages are the same as
+ * the ones HoppersModel sends to its observers.
+ *
+ * Commands are run one at a time in the order they were given, each after the last one
+ * finished, so a session never needs a thread of its own.
+ * @author Jake Edelstein
+ */
+public class GameSession {
+    private final long id;
+    private final BoardGeometry geometry;
+    private byte[] pads;
+    /** the selected pad, or -1 if none */
+    private int selected = -1;
+    /** the last command given, which the next command waits for */
+    private CompletableFuture<String> last = CompletableFuture.completedFuture(null);
+
+    /**
+     * Start a game at the beginning of a puzzle
+     * @param id the session id
+     * @param geometry the puzzle
+     */
+    GameSession(long id, BoardGeometry geometry){
+        this.id = id;
+        this.geometry = geometry;
+        this.pads = geometry.getStartPads();
+    }
+
+    /**
+     * Queue a command behind the ones already given
+     * @param command runs on the session and gives the future message
+     * @param executor runs the command
+     * @return the future message
+     */
+    synchronized CompletableFuture<String> enqueue(Function<GameSession, CompletableFuture<String>> command,
+                                                   Executor executor){
+        // a failed command must not stop the ones after it
+        this.last = this.last.handle((message, e) -> this)
+                .thenComposeAsync(command, executor);
+        return this.last;
+    }
+
+    /**
+     * Select a cell. The first selection picks a frog and the second jumps it.
+     * @param r the row
+     * @param c the column
+     * @return the message
+     */
+    String select(int r, int c){
+        String coords = "(" + r + ", " + c + ")";
+        if (r >= this.geometry.getNumRows() || c >= this.geometry.getNumCols() || r < 0 || c < 0){
+            return "> Selected coordinates out of bounds";
+        }
+        int pad = this.geometry.padAt(r, c);
+        if (this.selected < 0){
+            if (pad < 0){
+                return "> Invalid selection";
+            } else if (this.pads[pad] == BoardGeometry.EMPTY){
+                return "> No frog at " + coords;
+            }
+            this.selected = pad;
+            return "> Selected " + coords;
+        }
+        int from = this.selected;
+        this.selected = -1;
+        int over = pad < 0 ? -1 : this.geometry.over(from, pad);
+        String jump = " from " + this.geometry.coordinates(from) + " to " + coords;
+        if (over < 0 || this.pads[over] != BoardGeometry.GREEN || this.pads[pad] != BoardGeometry.EMPTY){
+            return "Can't jump" + jump;
+        }
+        this.pads[pad] = this.pads[from];
+        this.pads[over] = BoardGeometry.EMPTY;
+        this.pads[from] = BoardGeometry.EMPTY;
+        return "Jumped" + jump;
+    }
+
+    /**
+     * Ask the hint service for the next move and make it
+     * @param hints the hint service
+     * @return the future message
+     */
+    CompletableFuture<String> hint(HintService hints){
+        return hints.next(this.geometry, this.pads.clone()).thenApply(next -> {
+            if (next == HintService.NO_SOLUTION){
+                return "> No solution!";
+            } else if (Arrays.equals(next, this.pads)){
+                return "Already solved!";
+            }
+            // the hint service keeps the array, so the session takes a copy
+            this.pads = next.clone();
+            this.selected = -1;
+            return "> Next step!";
+        });
+    }
+
+    /**
+     * Go back to the beginning of the puzzle
+     * @return the message
+     */
+    String reset(){
+        this.pads = this.geometry.getStartPads();
+        this.selected = -1;
+        return "Puzzle reset!";
+    }
+
+    /**
+     * @return the board in the same format as HoppersModel.ptuiToString()
+     */
+    String board(){
+        StringBuilder s = new StringBuilder("   ");
+        for (int c = 0; c < this.geometry.getNumCols(); c++){
+            s.append(c).append(' ');
+        }
+        s.append("\n  ");
+        for (int c = 0; c < this.geometry.getNumCols(); c++){
+            s.append("--");
+        }
+        s.append('\n');
+        for (int r = 0; r < this.geometry.getNumRows(); r++){
+            s.append(r).append('|');
+            for (int c = 0; c < this.geometry.getNumCols(); c++){
+                int pad = this.geometry.padAt(r, c);
+                s.append(' ').append(pad < 0 ? HoppersConfig.WATER : BoardGeometry.toCell(this.pads[pad]));
+            }
+            s.append('\n');
+        }
+        return s.toString();
+    }
+
+    /**
+     * @return the current configuration
+     */
+    public HoppersConfig getCurrentConfig(){
+        return this.geometry.toConfig(this.pads);
+    }
+
+    /** getters for private values */
+    public long getId() {
+        return this.id;
+    }
+
+    public BoardGeometry getGeometry() {
+        return this.geometry;
+    }
+}
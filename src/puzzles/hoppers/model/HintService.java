@@ -0,0 +1,106 @@
+package puzzles.hoppers.model;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Solver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * This class answers hints for every GameSession of a SessionEngine from a shared pool of
+ * solver threads. A board being solved isn't solved again; every session asking for it
+ * waits on the same search. When a search finishes, the next move from every board on its
+ * path is remembered, since the rest of a shortest path is a shortest path too, so players
+ * following hints on the same puzzle rarely start a search at all.
+ * @author Jake Edelstein
+ */
+public class HintService {
+    /** the answer for a board with no solution */
+    public static final byte[] NO_SOLUTION = new byte[0];
+
+    private final ExecutorService solvers;
+    /** boards being solved right now */
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    /** the next move from recently solved boards, least recently used first */
+    private final LinkedHashMap<String, byte[]> nextMoves;
+
+    /**
+     * @param solvers the threads that run searches
+     * @param cacheSize the number of boards whose next move is remembered
+     */
+    public HintService(ExecutorService solvers, int cacheSize){
+        this.solvers = solvers;
+        this.nextMoves = new LinkedHashMap<>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Find the frogs after the next move of a shortest solution
+     * @param geometry the puzzle
+     * @param pads the frogs now, which must not change until the answer arrives
+     * @return the frogs after the next move, the same frogs if already solved, or NO_SOLUTION
+     */
+    public CompletableFuture<byte[]> next(BoardGeometry geometry, byte[] pads){
+        String key = key(geometry, pads);
+        synchronized (this.nextMoves){
+            byte[] known = this.nextMoves.get(key);
+            if (known != null){
+                return CompletableFuture.completedFuture(known);
+            }
+        }
+        return this.inFlight.computeIfAbsent(key, k -> {
+            CompletableFuture<byte[]> future = CompletableFuture.supplyAsync(() -> solve(geometry, pads), this.solvers);
+            // removing on this thread inside computeIfAbsent would be a recursive update if the search
+            // already finished, and another thread's remove waits until the future is in the map.
+            // Only this future is removed, never a later search of the same board.
+            future.whenCompleteAsync((next, e) -> this.inFlight.remove(k, future), this.solvers);
+            return future;
+        });
+    }
+
+    /**
+     * Solve a board with its own Solver and remember the next move from every board on the path
+     * @param geometry the puzzle
+     * @param pads the frogs
+     * @return the frogs after the next move, the same frogs if already solved, or NO_SOLUTION
+     */
+    private byte[] solve(BoardGeometry geometry, byte[] pads){
+        HoppersConfig start = geometry.toConfig(pads);
+        Solver solver = new Solver();
+        HashMap<Configuration, Configuration> predecessors = solver.findSolution(start);
+        List<Configuration> path = solver.buildConfigPath(predecessors, start, solver.getEndConfig());
+        if (path == null){
+            synchronized (this.nextMoves){
+                this.nextMoves.put(key(geometry, pads), NO_SOLUTION);
+            }
+            return NO_SOLUTION;
+        }
+        byte[][] boards = new byte[path.size()][];
+        for (int i = 0; i < boards.length; i++){
+            boards[i] = i == 0 ? pads : geometry.toPads((HoppersConfig) path.get(i));
+        }
+        synchronized (this.nextMoves){
+            for (int i = 0; i < boards.length; i++){
+                this.nextMoves.put(key(geometry, boards[i]), i + 1 < boards.length ? boards[i + 1] : boards[i]);
+            }
+        }
+        return boards.length > 1 ? boards[1] : pads;
+    }
+
+    /**
+     * @return a key for a board of a puzzle, one character per pad
+     */
+    private static String key(BoardGeometry geometry, byte[] pads){
+        return geometry.getId() + ":" + new String(pads, StandardCharsets.ISO_8859_1);
+    }
+}
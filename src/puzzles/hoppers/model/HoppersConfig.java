@@ -2,20 +2,36 @@ package puzzles.hoppers.model;
 
 import puzzles.common.Coordinates;
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.EncodableConfiguration;
 import puzzles.common.solver.Solver;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 
 /**
- * This class represents individual configurations for the hoppers puzzle
+ * This class represents individual configurations for the hoppers puzzle.
+ *
+ * A jump changes at most three rows, so a config made by a jump shares every other row
+ * with the config it came from and only copies the rows it changes. A shared row must
+ * never be changed in place, so cells are changed with setCell(), which copies the row
+ * first. Each config keeps the hash of every row, and equals() skips rows that are the
+ * same array. The rows are combined with a multiplier other than the 31 used inside a row,
+ * so cells on the same anti-diagonal don't get the same weight and a diagonal jump changes
+ * the hash.
  * @author Jake Edelstein
  */
-public class HoppersConfig implements Configuration{
+public class HoppersConfig implements EncodableConfiguration {
     private char[][] grid;
+    /** the hash of each row, kept up to date with the rows */
+    private int[] rowHashes;
+    /** the hash of the whole grid, or 0 if it hasn't been worked out since the grid changed */
+    private int hash;
     private int numRows;
     private int numCols;
     // names for the different characters found in hoppers files
@@ -23,13 +39,26 @@ public class HoppersConfig implements Configuration{
     public static final char RED_FROG = 'R';
     public static final char NO_FROG = '.';
     public static final char WATER = '*';
+    // the order of the cell characters when packed into 2 bits each
+    private static final char[] CELL_CODES = {NO_FROG, GREEN_FROG, RED_FROG, WATER};
+    /** the multiplier that combines the row hashes, an odd constant far from 31 */
+    private static final int ROW_MULTIPLIER = 0x9E3779B1;
 
     /**
      * Create the initial configuration for a hoppers game
      * @param filename the file to read from
      */
     public HoppersConfig(String filename) throws  IOException{
-        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(filename))){
+        this(new FileReader(filename));
+    }
+
+    /**
+     * Create the initial configuration for a hoppers game from text in the
+     * same format as a hoppers file. The reader is closed afterwards.
+     * @param reader the text to read from
+     */
+    public HoppersConfig(Reader reader) throws IOException{
+        try (BufferedReader bufferedReader = new BufferedReader(reader)){
             // create the grid given the dimensions on the first line
             String[] dims = bufferedReader.readLine().split(" ");
             this.numRows = Integer.parseInt(dims[0]);
@@ -42,6 +71,7 @@ public class HoppersConfig implements Configuration{
                     this.grid[r][c] = nextRow[c].charAt(0);
                 }
             }
+            this.rowHashes = hashRows(this.grid);
             Solver.totalConfigs++;
             Solver.uniqueConfigs++;
         }
@@ -55,15 +85,14 @@ public class HoppersConfig implements Configuration{
      * @param jumpEnd the ending coordinates of a frog that is jumping
      */
     public HoppersConfig(HoppersConfig current, Coordinates remove, Coordinates jumpStart, Coordinates jumpEnd){
-        // copy the current config
+        // share the rows of the current config, copying only the ones the jump changes
         this.numRows = current.numRows;
         this.numCols = current.numCols;
-        this.grid = new char[this.numRows][this.numCols];
-        for (int r = 0; r < this.numRows; r++){
-            for (int c = 0; c < this.numCols; c++){
-                this.grid[r][c] = current.grid[r][c];
-            }
-        }
+        this.grid = current.grid.clone();
+        this.rowHashes = current.rowHashes.clone();
+        copyRow(current, remove.getRow());
+        copyRow(current, jumpStart.getRow());
+        copyRow(current, jumpEnd.getRow());
         // remove the frog that gets jumped over
         this.grid[remove.getRow()][remove.getColumn()] = NO_FROG;
         // store the color of the frog before it jumps
@@ -72,9 +101,103 @@ public class HoppersConfig implements Configuration{
         this.grid[jumpStart.getRow()][jumpStart.getColumn()] = NO_FROG;
         // add the frog that jumps to its new position
         this.grid[jumpEnd.getRow()][jumpEnd.getColumn()] = frog;
+        this.rowHashes[remove.getRow()] = Arrays.hashCode(this.grid[remove.getRow()]);
+        this.rowHashes[jumpStart.getRow()] = Arrays.hashCode(this.grid[jumpStart.getRow()]);
+        this.rowHashes[jumpEnd.getRow()] = Arrays.hashCode(this.grid[jumpEnd.getRow()]);
         Solver.totalConfigs++;
     }
 
+    /**
+     * Create a configuration from an already filled in grid. Used when rebuilding
+     * configurations that were packed into records or kept by a game session, so it
+     * is not counted as a new config
+     * @param numRows the number of rows
+     * @param numCols the number of columns
+     * @param grid the grid
+     */
+    HoppersConfig(int numRows, int numCols, char[][] grid){
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.grid = grid;
+        this.rowHashes = hashRows(grid);
+    }
+
+    /**
+     * Copy a row that is still shared with the config this one was made from
+     * @param current the config this one was made from
+     * @param r the row
+     */
+    private void copyRow(HoppersConfig current, int r){
+        if (this.grid[r] == current.grid[r]){
+            this.grid[r] = current.grid[r].clone();
+        }
+    }
+
+    /**
+     * @return the hash of each row of a grid
+     */
+    private static int[] hashRows(char[][] grid){
+        int[] hashes = new int[grid.length];
+        for (int r = 0; r < grid.length; r++){
+            hashes[r] = Arrays.hashCode(grid[r]);
+        }
+        return hashes;
+    }
+
+    /**
+     * Change one cell. The row is copied first, since it may be shared with other configs.
+     * @param r the row
+     * @param c the column
+     * @param cell the new character for the cell
+     */
+    public void setCell(int r, int c, char cell){
+        if (this.grid[r][c] != cell){
+            this.grid = this.grid.clone();
+            this.grid[r] = this.grid[r].clone();
+            this.grid[r][c] = cell;
+            this.rowHashes = this.rowHashes.clone();
+            this.rowHashes[r] = Arrays.hashCode(this.grid[r]);
+            this.hash = 0;
+        }
+    }
+
+    /**
+     * Change one cell in place, without copying anything, and update the hash of its row
+     * from the change alone. Only for a config whose rows and arrays are not shared with
+     * any other config, like the board a HoppersModel plays on.
+     * @param r the row
+     * @param c the column
+     * @param cell the new character for the cell
+     */
+    void changeCellInPlace(int r, int c, char cell){
+        char old = this.grid[r][c];
+        if (old != cell){
+            this.grid[r][c] = cell;
+            // Arrays.hashCode weighs the cell in column c by 31 to the power of the columns after it
+            int weight = 1;
+            int base = 31;
+            for (int e = this.numCols - 1 - c; e > 0; e >>= 1){
+                if ((e & 1) != 0){
+                    weight *= base;
+                }
+                base *= base;
+            }
+            this.rowHashes[r] += (cell - old) * weight;
+            this.hash = 0;
+        }
+    }
+
+    /**
+     * @return a copy of this config that shares no arrays with it, so it can be changed in place
+     */
+    HoppersConfig deepCopy(){
+        char[][] cells = new char[this.numRows][];
+        for (int r = 0; r < this.numRows; r++){
+            cells[r] = this.grid[r].clone();
+        }
+        return new HoppersConfig(this.numRows, this.numCols, cells);
+    }
+
     /** getters for private values*/
     public int getNumRows(){
         return this.numRows;
@@ -84,6 +207,9 @@ public class HoppersConfig implements Configuration{
         return this.numCols;
     }
 
+    /**
+     * @return the grid, whose rows may be shared with other configs and must not be changed
+     */
     public char[][] getGrid(){
         return this.grid;
     }
@@ -179,6 +305,58 @@ public class HoppersConfig implements Configuration{
         }
         return neighbors;
     }
+    /**
+     * Pack the grid into a record using 2 bits per cell, row by row
+     * @return the packed record
+     */
+    @Override
+    public byte[] encode() {
+        byte[] record = new byte[(this.numRows * this.numCols * 2 + 7) / 8];
+        int bit = 0;
+        for (int r = 0; r < this.numRows; r++){
+            for (int c = 0; c < this.numCols; c++){
+                int code = 0;
+                while (code < 3 && CELL_CODES[code] != this.grid[r][c]){
+                    code++;
+                }
+                record[bit / 8] |= (byte) (code << (6 - bit % 8));
+                bit += 2;
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Rebuild a configuration with the same dimensions as this one from a packed record
+     * @param record the packed record
+     * @return the configuration stored in the record
+     */
+    @Override
+    public HoppersConfig decode(byte[] record) {
+        return unpack(this.numRows, this.numCols, ByteBuffer.wrap(record), 0);
+    }
+
+    /**
+     * Rebuild a configuration from cells packed the same way as encode(), read straight
+     * from a buffer without copying the record out first
+     * @param numRows the number of rows
+     * @param numCols the number of columns
+     * @param buffer the buffer holding the record
+     * @param offset where the record starts in the buffer
+     * @return the configuration stored in the record
+     */
+    static HoppersConfig unpack(int numRows, int numCols, ByteBuffer buffer, int offset){
+        char[][] cells = new char[numRows][numCols];
+        int bit = 0;
+        for (int r = 0; r < numRows; r++){
+            for (int c = 0; c < numCols; c++){
+                cells[r][c] = CELL_CODES[(buffer.get(offset + bit / 8) >> (6 - bit % 8)) & 3];
+                bit += 2;
+            }
+        }
+        return new HoppersConfig(numRows, numCols, cells);
+    }
+
     /**
      * Determines if two configurations are equal
      * @param other another configuration
@@ -192,6 +370,13 @@ public class HoppersConfig implements Configuration{
             HoppersConfig o = (HoppersConfig) other;
             // go through all cells in the grid, return false if any don't match
             for (int r = 0; r < this.numRows; r++){
+                // a shared row matches, and rows with different hashes can't
+                if (this.grid[r] == o.grid[r]){
+                    continue;
+                }
+                if (this.rowHashes[r] != o.rowHashes[r]){
+                    return false;
+                }
                 for (int c = 0; c < this.numCols; c++){
                     if (this.grid[r][c] != o.grid[r][c]){
                         return false;
@@ -205,12 +390,26 @@ public class HoppersConfig implements Configuration{
     }
 
     /**
-     * Generate a hashcode for this configuration
+     * Generate a hashcode for this configuration from the hashes of its rows, each weighted
+     * by a power of ROW_MULTIPLIER and then mixed so every bit depends on every row
      * @return a hashcode
      */
     @Override
     public int hashCode(){
-        return this.toString().hashCode();
+        if (this.hash == 0){
+            int h = 0;
+            for (int rowHash : this.rowHashes){
+                h = h * ROW_MULTIPLIER + rowHash;
+            }
+            // the finishing mix of MurmurHash3
+            h ^= h >>> 16;
+            h *= 0x85EBCA6B;
+            h ^= h >>> 13;
+            h *= 0xC2B2AE35;
+            h ^= h >>> 16;
+            this.hash = h;
+        }
+        return this.hash;
     }
 
     /**
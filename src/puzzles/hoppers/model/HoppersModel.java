@@ -2,14 +2,16 @@ package puzzles.hoppers.model;
 
 import puzzles.common.Coordinates;
 import puzzles.common.Observer;
-import puzzles.common.solver.Configuration;
-import puzzles.common.solver.Solver;
+import puzzles.common.solver.AsyncSolver;
+import puzzles.common.solver.SolutionCache;
+import puzzles.common.solver.SolveBudget;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * This class is used to store all the rules and logic for the hoppers puzzle
@@ -19,12 +21,21 @@ public class HoppersModel {
     /** the collection of observers of this model */
     private final List<Observer<HoppersModel, String>> observers = new LinkedList<>();
 
-    /** the current configuration */
+    /** the current configuration, which shares no arrays with any other and is changed in place */
     private HoppersConfig currentConfig;
 
+    /** the configuration the puzzle was loaded with, which reset goes back to */
+    private HoppersConfig startConfig;
+
+    /** the moves made since loading, to undo and redo */
+    private MoveHistory history;
+
     /** the current filename */
     private String filename;
 
+    /** runs hints that have a time limit */
+    private static final AsyncSolver hintSolver = new AsyncSolver();
+
     /** coordinates for jumping */
     private Coordinates startCoords = null;
     private Coordinates endCoords = null;
@@ -36,6 +47,8 @@ public class HoppersModel {
                 s(elect) r c        -- select cell at r, c
                 q(uit)              -- quit the game
                 r(eset)             -- reset the current game
+                u(ndo)              -- take back the last move
+                redo                -- make the last move taken back again
                 """;
 
 
@@ -65,7 +78,9 @@ public class HoppersModel {
      */
     public void load(String filename){
         try {
-            this.currentConfig = new HoppersConfig(filename);
+            this.startConfig = new HoppersConfig(filename);
+            this.currentConfig = copy(this.startConfig);
+            this.history = new MoveHistory(this.startConfig.getNumCols());
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -125,7 +140,7 @@ public class HoppersModel {
             if (currentConfig.getGrid()[start.getRow() - 2][start.getColumn()] == HoppersConfig.GREEN_FROG &&
                     currentConfig.getGrid()[start.getRow() - 4][start.getColumn()] == HoppersConfig.NO_FROG){
                 greenFrogUnderJump = true;
-                currentConfig.getGrid()[start.getRow() - 2][start.getColumn()] = HoppersConfig.NO_FROG;
+                currentConfig.changeCellInPlace(start.getRow() - 2, start.getColumn(), HoppersConfig.NO_FROG);
             }
         }
         //jump south
@@ -134,7 +149,7 @@ public class HoppersModel {
             if (currentConfig.getGrid()[start.getRow() + 2][start.getColumn()] == HoppersConfig.GREEN_FROG &&
                     currentConfig.getGrid()[start.getRow() + 4][start.getColumn()] == HoppersConfig.NO_FROG){
                 greenFrogUnderJump = true;
-                currentConfig.getGrid()[start.getRow() + 2][start.getColumn()] = HoppersConfig.NO_FROG;
+                currentConfig.changeCellInPlace(start.getRow() + 2, start.getColumn(), HoppersConfig.NO_FROG);
             }
         }
         //jump east
@@ -143,7 +158,7 @@ public class HoppersModel {
             if (currentConfig.getGrid()[start.getRow()][start.getColumn() + 2] == HoppersConfig.GREEN_FROG &&
                     currentConfig.getGrid()[start.getRow()][start.getColumn() + 4] == HoppersConfig.NO_FROG){
                 greenFrogUnderJump = true;
-                currentConfig.getGrid()[start.getRow()][start.getColumn() + 2] = HoppersConfig.NO_FROG;
+                currentConfig.changeCellInPlace(start.getRow(), start.getColumn() + 2, HoppersConfig.NO_FROG);
             }
         }
         //jump west
@@ -152,7 +167,7 @@ public class HoppersModel {
             if (currentConfig.getGrid()[start.getRow()][start.getColumn() - 2] == HoppersConfig.GREEN_FROG &&
                     currentConfig.getGrid()[start.getRow()][start.getColumn() - 4] == HoppersConfig.NO_FROG){
                 greenFrogUnderJump = true;
-                currentConfig.getGrid()[start.getRow()][start.getColumn() - 2] = HoppersConfig.NO_FROG;
+                currentConfig.changeCellInPlace(start.getRow(), start.getColumn() - 2, HoppersConfig.NO_FROG);
             }
         }
         // jump northeast
@@ -161,7 +176,7 @@ public class HoppersModel {
             if (currentConfig.getGrid()[start.getRow() - 1][start.getColumn() + 1] == HoppersConfig.GREEN_FROG &&
                     currentConfig.getGrid()[start.getRow() - 2][start.getColumn() + 2] == HoppersConfig.NO_FROG){
                 greenFrogUnderJump = true;
-                currentConfig.getGrid()[start.getRow() - 1][start.getColumn() + 1] = HoppersConfig.NO_FROG;
+                currentConfig.changeCellInPlace(start.getRow() - 1, start.getColumn() + 1, HoppersConfig.NO_FROG);
             }
         }
         // jump southeast
@@ -170,7 +185,7 @@ public class HoppersModel {
             if (currentConfig.getGrid()[start.getRow() + 1][start.getColumn() + 1] == HoppersConfig.GREEN_FROG &&
                     currentConfig.getGrid()[start.getRow() + 2][start.getColumn() + 2] == HoppersConfig.NO_FROG){
                 greenFrogUnderJump = true;
-                currentConfig.getGrid()[start.getRow() + 1][start.getColumn() + 1] = HoppersConfig.NO_FROG;
+                currentConfig.changeCellInPlace(start.getRow() + 1, start.getColumn() + 1, HoppersConfig.NO_FROG);
             }
         }
         // jump southwest
@@ -179,7 +194,7 @@ public class HoppersModel {
             if (currentConfig.getGrid()[start.getRow() + 1][start.getColumn() - 1] == HoppersConfig.GREEN_FROG &&
                     currentConfig.getGrid()[start.getRow() + 2][start.getColumn() - 2] == HoppersConfig.NO_FROG){
                 greenFrogUnderJump = true;
-                currentConfig.getGrid()[start.getRow() + 1][start.getColumn() - 1] = HoppersConfig.NO_FROG;
+                currentConfig.changeCellInPlace(start.getRow() + 1, start.getColumn() - 1, HoppersConfig.NO_FROG);
             }
         }
         // jump northwest
@@ -188,18 +203,12 @@ public class HoppersModel {
             if (currentConfig.getGrid()[start.getRow() - 1][start.getColumn() - 1] == HoppersConfig.GREEN_FROG &&
                     currentConfig.getGrid()[start.getRow() - 2][start.getColumn() - 2] == HoppersConfig.NO_FROG){
                 greenFrogUnderJump = true;
-                currentConfig.getGrid()[start.getRow() - 1][start.getColumn() - 1] = HoppersConfig.NO_FROG;
+                currentConfig.changeCellInPlace(start.getRow() - 1, start.getColumn() - 1, HoppersConfig.NO_FROG);
             }
         }
         // run both checks
         if (validJump && greenFrogUnderJump){
-            // make sure to ove the correct color frog from start to finish
-            if (currentConfig.getGrid()[start.getRow()][start.getColumn()] == HoppersConfig.GREEN_FROG){
-                currentConfig.getGrid()[end.getRow()][end.getColumn()] = HoppersConfig.GREEN_FROG;
-            } else {
-                currentConfig.getGrid()[end.getRow()][end.getColumn()] = HoppersConfig.RED_FROG;
-            }
-            currentConfig.getGrid()[start.getRow()][start.getColumn()] = HoppersConfig.NO_FROG;
+            move(start, end);
             alertObservers("Jumped from " + start + " to " + end);
 
         } else {
@@ -207,40 +216,92 @@ public class HoppersModel {
         }
     }
 
+    /**
+     * Move a frog from start to end, removing the frog in between, and add the move to the history
+     * @param start starting coordinates
+     * @param end ending coordinates
+     */
+    private void move(Coordinates start, Coordinates end){
+        char frog = currentConfig.getGrid()[start.getRow()][start.getColumn()];
+        history.record(start, end, frog);
+        currentConfig.changeCellInPlace((start.getRow() + end.getRow()) / 2, (start.getColumn() + end.getColumn()) / 2,
+                HoppersConfig.NO_FROG);
+        currentConfig.changeCellInPlace(start.getRow(), start.getColumn(), HoppersConfig.NO_FROG);
+        currentConfig.changeCellInPlace(end.getRow(), end.getColumn(), frog);
+    }
+
+    /**
+     * @return the number of rows plus the number of columns between two cells
+     */
+    private static int distance(Coordinates a, Coordinates b){
+        return Math.abs(a.getRow() - b.getRow()) + Math.abs(a.getColumn() - b.getColumn());
+    }
+
     /**
      * Generate the next step to solving the puzzle, if possible.
      * Otherwise, tell the user there is no solution.
      */
     public void hint(){
-        Solver hoppersSolver = new Solver();
-        HashMap<Configuration, Configuration> predecessors = hoppersSolver.findSolution(currentConfig);
-        List<String> path = hoppersSolver.buildPath(predecessors, currentConfig, Solver.endConfig);
+        // reuse the solution from an earlier hint or run if there is one
+        List<String> path = SolutionCache.solveCached(currentConfig, null);
+        showHint(path);
+    }
+
+    /**
+     * Generate the next step to solving the puzzle in the background, giving up if the
+     * solver can't finish within the time limit. The search runs on a copy of the board,
+     * and the hint is only made if the board hasn't changed by the time it is found.
+     * @param timeLimitMillis the longest the solver may run
+     * @param view runs the update to the board and the observers, like the view's own thread
+     * @return a future that completes once the observers have been told the outcome
+     */
+    public CompletableFuture<Void> hint(long timeLimitMillis, Executor view){
+        HoppersConfig searched = copy(currentConfig);
+        return hintSolver.solve(searched, SolveBudget.ofMillis(timeLimitMillis), null).thenAcceptAsync(result -> {
+            if (!searched.equals(currentConfig)){
+                alertObservers("> The board changed, hint dropped");
+            } else if (result.isStoppedEarly()){
+                alertObservers("> No hint within " + timeLimitMillis + " ms");
+            } else {
+                showHint(result.getPath());
+            }
+        }, view);
+    }
+
+    /**
+     * Move the board to the step after the current config in a solution path
+     * @param path the path, or null if there is no solution
+     */
+    private void showHint(List<String> path){
         if (path == null){
             alertObservers("> No solution!");
         }
         else if (path.size() == 1){
             alertObservers("Already solved!");
         } else {
-            /* convert the second string in the path (the step after the current config)
-             back to a HoppersConfig
+            /* find the jump from the current config to the second string in the path
+             (the step after the current config), and make it
              */
-            int r = 0;
-            int c = 0;
-            String[] nextStep = path.get(1).split(" ");
-            for (String s : nextStep){
-                if (s.contains("\n")){
-                    currentConfig.getGrid()[r][c] = s.charAt(0);
-                    c = 0;
-                    r++;
-                    currentConfig.getGrid()[r][c] = s.charAt(2);
-                    c++;
-                } else {
-                    currentConfig.getGrid()[r][c] = s.charAt(0);
-                    c++;
+            String[] nextStep = path.get(1).split("\n");
+            Coordinates to = null;
+            List<Coordinates> emptied = new LinkedList<>();
+            for (int r = 0; r < currentConfig.getNumRows(); r++){
+                for (int c = 0; c < currentConfig.getNumCols(); c++){
+                    char now = currentConfig.getGrid()[r][c];
+                    char next = nextStep[r].charAt(2 * c);
+                    if (now == HoppersConfig.NO_FROG && next != HoppersConfig.NO_FROG){
+                        to = new Coordinates(r, c);
+                    } else if (now != HoppersConfig.NO_FROG && next == HoppersConfig.NO_FROG){
+                        emptied.add(new Coordinates(r, c));
+                    }
                 }
-
             }
-
+            // of the two cells that were emptied, the frog jumped from the one farther from where it landed
+            Coordinates from = emptied.get(0);
+            if (distance(emptied.get(1), to) > distance(from, to)){
+                from = emptied.get(1);
+            }
+            move(from, to);
             alertObservers("> Next step!");
         }
     }
@@ -256,39 +317,110 @@ public class HoppersModel {
      * Reset the current puzzle to its initial state
      */
     public void reset() {
-        load(this.filename);
+        // the start is kept in memory, so the file isn't read again, and the moves can still be redone
+        this.currentConfig = copy(this.startConfig);
+        this.history.rewind();
+        this.startCoords = null;
+        alertObservers("Loaded: " + filename.substring(filename.lastIndexOf(File.separator) + 1));
         alertObservers("Puzzle reset!");
     }
 
+    /**
+     * Take back the last move
+     */
+    public void undo(){
+        this.startCoords = null;
+        Coordinates[] move = this.history.undo(this.currentConfig);
+        alertObservers(move == null ? "> Nothing to undo" : "Undid jump from " + move[0] + " to " + move[1]);
+    }
+
+    /**
+     * Make the last move taken back again
+     */
+    public void redo(){
+        this.startCoords = null;
+        Coordinates[] move = this.history.redo(this.currentConfig);
+        alertObservers(move == null ? "> Nothing to redo" : "Jumped from " + move[0] + " to " + move[1]);
+    }
+
+    /**
+     * Go to any point in the history, undoing or redoing moves to get there
+     * @param moves the number of moves made at that point, from 0 to the number kept
+     */
+    public void seek(int moves){
+        this.startCoords = null;
+        if (moves < 0 || moves > this.history.size()){
+            alertObservers("> No move " + moves);
+        } else {
+            this.history.seek(this.currentConfig, moves);
+            alertObservers("> At move " + moves + " of " + this.history.size());
+        }
+    }
+
+    /**
+     * @return the moves made so far as PTUI select commands, two per move
+     */
+    public List<String> exportGame(){
+        return this.history.export();
+    }
+
+    /**
+     * Play a whole game from the start of the puzzle. Every move is checked like one the user made.
+     * @param commands select commands like the ones exportGame() gives
+     */
+    public void replay(List<String> commands){
+        this.currentConfig = copy(this.startConfig);
+        this.history = new MoveHistory(this.startConfig.getNumCols());
+        this.startCoords = null;
+        for (String command : commands){
+            String[] parts = command.trim().split(" ");
+            select(new Coordinates(Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+        }
+    }
+
+    /**
+     * @return a copy of a configuration that can be changed in place without changing the original
+     */
+    private static HoppersConfig copy(HoppersConfig config){
+        return config.deepCopy();
+    }
+
     /**
      * Prints the current configuration in the designated PTUI format
      * @return the configuration as a string
      */
     public String ptuiToString(){
-        String s = "   ";
+        StringBuilder s = new StringBuilder();
+        ptuiToString(s);
+        return s.toString();
+    }
+
+    /**
+     * Add the current configuration in the designated PTUI format to the end of a buffer,
+     * so a caller printing many boards can keep using one buffer
+     * @param s the buffer
+     */
+    public void ptuiToString(StringBuilder s){
+        s.append("   ");
         // column numbers across the top
         for (int c = 0; c < currentConfig.getNumCols(); c++){
-            s += c;
-            if (c <= currentConfig.getNumCols()){
-                s += " ";
-            }
+            s.append(c).append(' ');
         }
         // hyphens under column numbers
-        s += "\n  ";
+        s.append("\n  ");
         for (int c = 0; c < currentConfig.getNumCols(); c++){
-            s += "--";
+            s.append("--");
         }
         // row numbers and row contents
-        s += "\n";
+        s.append('\n');
+        char[][] grid = currentConfig.getGrid();
         for (int r = 0; r < currentConfig.getNumRows(); r++){
-            s += r + "|";
+            s.append(r).append('|');
             for (int c = 0; c < currentConfig.getNumCols(); c++){
-                s += " " + currentConfig.getGrid()[r][c];
+                s.append(' ').append(grid[r][c]);
             }
-            s += "\n";
+            s.append('\n');
         }
-
-        return s;
     }
 
     /**
@@ -297,4 +429,11 @@ public class HoppersModel {
     public HoppersConfig getCurrentConfig() {
         return currentConfig;
     }
+
+    /**
+     * @return the moves made since loading
+     */
+    public MoveHistory getHistory() {
+        return history;
+    }
 }
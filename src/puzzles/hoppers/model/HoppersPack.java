@@ -0,0 +1,187 @@
+package puzzles.hoppers.model;
+
+import puzzles.common.solver.Solver;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class keeps many hoppers boards in one file, so a large set of puzzles can be
+ * loaded without opening and parsing a text file for each one. The file is:
+ * 1. a header: the magic number, the version, and the number of boards
+ * 2. an index: where each board starts, as an int from the start of the file
+ * 3. the boards: the length of the name and the name in UTF-8, then the number of rows and
+ *    columns as shorts, then the cells packed 2 bits each the same way as HoppersConfig.encode()
+ *
+ * A pack is read through a MappedByteBuffer, so opening one reads nothing, and a board is
+ * only unpacked when it is asked for by its index.
+ * @author Jake Edelstein
+ */
+public class HoppersPack {
+    /** "HOPK" in ASCII */
+    private static final int MAGIC = 0x484F504B;
+    private static final int VERSION = 1;
+    /** the bytes before the index */
+    private static final int HEADER_BYTES = 12;
+
+    private final ByteBuffer buffer;
+    private final int size;
+
+    /**
+     * @param buffer the whole pack
+     * @throws IOException if the buffer doesn't hold a pack
+     */
+    private HoppersPack(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC){
+            throw new IOException("Not a hoppers pack");
+        }
+        if (buffer.getInt(4) != VERSION){
+            throw new IOException("Unknown pack version " + buffer.getInt(4));
+        }
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+    }
+
+    /**
+     * Map a pack into memory
+     * @param file the pack file
+     * @return the pack
+     * @throws IOException if the file can't be read or isn't a pack
+     */
+    public static HoppersPack open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new HoppersPack(mapped);
+        }
+    }
+
+    /**
+     * @return the number of boards in the pack
+     */
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * @return where a board starts in the pack
+     */
+    private int offset(int index){
+        if (index < 0 || index >= this.size){
+            throw new IndexOutOfBoundsException("No board " + index);
+        }
+        return this.buffer.getInt(HEADER_BYTES + 4 * index);
+    }
+
+    /**
+     * @param index the index of the board
+     * @return the name the board was packed with, usually its file name
+     */
+    public String getName(int index){
+        int at = offset(index);
+        byte[] name = new byte[this.buffer.getShort(at) & 0xFFFF];
+        this.buffer.get(at + 2, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Create the initial configuration of a board, counted the same as one read from a file
+     * @param index the index of the board
+     * @return the configuration
+     */
+    public HoppersConfig get(int index){
+        int at = offset(index);
+        at += 2 + (this.buffer.getShort(at) & 0xFFFF);
+        int numRows = this.buffer.getShort(at) & 0xFFFF;
+        int numCols = this.buffer.getShort(at + 2) & 0xFFFF;
+        HoppersConfig config = HoppersConfig.unpack(numRows, numCols, this.buffer, at + 4);
+        Solver.totalConfigs++;
+        Solver.uniqueConfigs++;
+        return config;
+    }
+
+    /**
+     * Write boards into a new pack
+     * @param file the pack file
+     * @param names the name of each board
+     * @param boards the boards
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path file, List<String> names, List<HoppersConfig> boards) throws IOException {
+        List<byte[]> records = new ArrayList<>(boards.size());
+        long offset = HEADER_BYTES + 4L * boards.size();
+        int[] offsets = new int[boards.size()];
+        for (int i = 0; i < boards.size(); i++){
+            HoppersConfig board = boards.get(i);
+            byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+            byte[] cells = board.encode();
+            if (name.length > 0xFFFF || board.getNumRows() > 0xFFFF || board.getNumCols() > 0xFFFF){
+                throw new IOException("Board " + names.get(i) + " is too big to pack");
+            }
+            ByteBuffer record = ByteBuffer.allocate(2 + name.length + 4 + cells.length);
+            record.putShort((short) name.length).put(name);
+            record.putShort((short) board.getNumRows()).putShort((short) board.getNumCols()).put(cells);
+            if (offset > Integer.MAX_VALUE){
+                throw new IOException("Pack would be bigger than 2 GB");
+            }
+            offsets[i] = (int) offset;
+            offset += record.capacity();
+            records.add(record.array());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(boards.size());
+            for (int o : offsets){
+                out.writeInt(o);
+            }
+            for (byte[] record : records){
+                out.write(record);
+            }
+        }
+    }
+
+    /**
+     * Pack hoppers text files, or every .txt file in directories, into one pack
+     * @param args the pack file, then the files and directories to pack
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java HoppersPack pack-file (file | directory)...");
+            System.exit(0);
+        }
+        List<Path> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            Path input = Path.of(args[i]);
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> listing = Files.list(input)) {
+                    files.addAll(listing.filter(f -> f.toString().endsWith(".txt")).sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                files.add(input);
+            }
+        }
+        List<String> names = new ArrayList<>(files.size());
+        List<HoppersConfig> boards = new ArrayList<>(files.size());
+        for (Path f : files) {
+            names.add(f.getFileName().toString());
+            boards.add(new HoppersConfig(f.toString()));
+        }
+        Path pack = Path.of(args[0]);
+        write(pack, names, boards);
+        System.out.println("Packed " + boards.size() + " boards into " + pack + " (" + Files.size(pack) + " bytes)");
+    }
+}
@@ -0,0 +1,185 @@
+package puzzles.hoppers.model;
+
+import puzzles.common.Coordinates;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class keeps the moves of a hoppers game so they can be undone and redone. Each jump
+ * is kept as a delta in one long: the cell the frog jumped from, the cell it jumped over,
+ * the cell it landed on, and whether it was the red frog. Cells are numbered across the
+ * rows. Undoing or redoing a move only changes those three cells in place, however long
+ * the game and however big the board, so the board must not share its rows with any other
+ * config.
+ *
+ * The moves after the current position are the ones that were undone. They can be redone
+ * until a new move is made, which throws them away.
+ * @author Jake Edelstein
+ */
+public class MoveHistory {
+    /** the bits used by each cell of a move */
+    private static final int CELL_BITS = 20;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+    private static final long RED_BIT = 1L << (3 * CELL_BITS);
+
+    private final int numCols;
+    private long[] moves = new long[16];
+    /** the number of moves kept, including the undone ones */
+    private int size = 0;
+    /** the number of moves made, which is where the next move goes */
+    private int position = 0;
+
+    /**
+     * Create an empty history
+     * @param numCols the number of columns of the board
+     */
+    public MoveHistory(int numCols){
+        this.numCols = numCols;
+    }
+
+    /**
+     * Add a move at the current position, throwing away any undone moves
+     * @param from where the frog jumped from
+     * @param to where the frog landed
+     * @param frog the color of the frog that jumped
+     */
+    public void record(Coordinates from, Coordinates to, char frog){
+        if (this.position == this.moves.length){
+            this.moves = Arrays.copyOf(this.moves, this.moves.length * 2);
+        }
+        int over = cell((from.getRow() + to.getRow()) / 2, (from.getColumn() + to.getColumn()) / 2);
+        long move = cell(from.getRow(), from.getColumn()) | (long) over << CELL_BITS
+                | (long) cell(to.getRow(), to.getColumn()) << 2 * CELL_BITS;
+        this.moves[this.position++] = frog == HoppersConfig.RED_FROG ? move | RED_BIT : move;
+        this.size = this.position;
+    }
+
+    /**
+     * Take back the last move made
+     * @param config the board to change in place
+     * @return the move, or null if there was none
+     */
+    public Coordinates[] undo(HoppersConfig config){
+        if (!canUndo()){
+            return null;
+        }
+        long move = this.moves[--this.position];
+        char frog = (move & RED_BIT) != 0 ? HoppersConfig.RED_FROG : HoppersConfig.GREEN_FROG;
+        set(config, to(move), HoppersConfig.NO_FROG);
+        set(config, over(move), HoppersConfig.GREEN_FROG);
+        set(config, from(move), frog);
+        return coordinates(move);
+    }
+
+    /**
+     * Make the next undone move again
+     * @param config the board to change in place
+     * @return the move, or null if there was none
+     */
+    public Coordinates[] redo(HoppersConfig config){
+        if (!canRedo()){
+            return null;
+        }
+        long move = this.moves[this.position++];
+        char frog = (move & RED_BIT) != 0 ? HoppersConfig.RED_FROG : HoppersConfig.GREEN_FROG;
+        set(config, from(move), HoppersConfig.NO_FROG);
+        set(config, over(move), HoppersConfig.NO_FROG);
+        set(config, to(move), frog);
+        return coordinates(move);
+    }
+
+    /**
+     * Undo or redo moves until a number of moves have been made
+     * @param config the board to change in place
+     * @param target the number of moves, from 0 to size()
+     * @throws IndexOutOfBoundsException if there are not that many moves
+     */
+    public void seek(HoppersConfig config, int target){
+        if (target < 0 || target > this.size){
+            throw new IndexOutOfBoundsException("No move " + target);
+        }
+        while (this.position > target){
+            undo(config);
+        }
+        while (this.position < target){
+            redo(config);
+        }
+    }
+
+    /**
+     * Go back to before the first move without changing a board, keeping every move to redo.
+     * Used when the board has been put back to the start some other way.
+     */
+    void rewind(){
+        this.position = 0;
+    }
+
+    /**
+     * Write the moves made as select commands of the PTUI, two for each move, so a game
+     * can be replayed with HoppersModel.replay() or by the PTUI itself
+     * @return the commands
+     */
+    public List<String> export(){
+        List<String> commands = new ArrayList<>(2 * this.position);
+        for (int i = 0; i < this.position; i++){
+            for (Coordinates c : coordinates(this.moves[i])){
+                commands.add("s " + c.getRow() + " " + c.getColumn());
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * @return the number of a cell
+     */
+    private int cell(int r, int c){
+        return r * this.numCols + c;
+    }
+
+    /**
+     * Change the cell with a number
+     */
+    private void set(HoppersConfig config, int cell, char value){
+        config.changeCellInPlace(cell / this.numCols, cell % this.numCols, value);
+    }
+
+    private static int from(long move){
+        return (int) (move & CELL_MASK);
+    }
+
+    private static int over(long move){
+        return (int) (move >>> CELL_BITS & CELL_MASK);
+    }
+
+    private static int to(long move){
+        return (int) (move >>> 2 * CELL_BITS & CELL_MASK);
+    }
+
+    /**
+     * @return where a move jumped from and to
+     */
+    private Coordinates[] coordinates(long move){
+        return new Coordinates[]{
+                new Coordinates(from(move) / this.numCols, from(move) % this.numCols),
+                new Coordinates(to(move) / this.numCols, to(move) % this.numCols)};
+    }
+
+    /** getters for private values */
+    public boolean canUndo() {
+        return this.position > 0;
+    }
+
+    public boolean canRedo() {
+        return this.position < this.size;
+    }
+
+    public int getPosition() {
+        return this.position;
+    }
+
+    public int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,145 @@
+package puzzles.hoppers.model;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class hosts many independent hoppers games in one JVM. Unlike HoppersModel, which
+ * is one game that ends the program when it quits, each game here is a small GameSession
+ * that is opened and closed by id.
+ *
+ * Sessions don't have threads of their own. Their commands run on one small pool shared by
+ * every session, in order within each session, so thousands of mostly idle players cost
+ * only their boards. Hints go through a HintService on a separate pool, so long searches
+ * never hold up moves, and players on the same board share one search.
+ * @author Jake Edelstein
+ */
+public class SessionEngine {
+    private final ExecutorService commands;
+    private final ExecutorService solvers;
+    private final HintService hints;
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    /**
+     * @param commandThreads the threads that run moves for every session
+     * @param solverThreads the threads that run hint searches
+     * @param hintCacheSize the number of boards whose next move is remembered
+     */
+    public SessionEngine(int commandThreads, int solverThreads, int hintCacheSize){
+        this.commands = Executors.newFixedThreadPool(commandThreads, daemon("session"));
+        this.solvers = Executors.newFixedThreadPool(solverThreads, daemon("hint-solver"));
+        this.hints = new HintService(this.solvers, hintCacheSize);
+    }
+
+    /**
+     * Create an engine with one command thread and one hint thread per processor
+     */
+    public SessionEngine(){
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(), 100_000);
+    }
+
+    /**
+     * @param name the name of the threads
+     * @return a factory for daemon threads, so the engine never keeps the JVM alive by itself
+     */
+    private static ThreadFactory daemon(String name){
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Start a new game of a puzzle
+     * @param filename the puzzle file
+     * @return the session id
+     * @throws IOException if the file can't be read
+     */
+    public long open(String filename) throws IOException {
+        BoardGeometry geometry = BoardGeometry.of(filename);
+        long id = this.nextId.getAndIncrement();
+        this.sessions.put(id, new GameSession(id, geometry));
+        return id;
+    }
+
+    /**
+     * End a game. This takes the place of HoppersModel.quit(), which exits the program.
+     * @param id the session id
+     */
+    public void close(long id){
+        this.sessions.remove(id);
+    }
+
+    /**
+     * Select a cell in a game
+     * @param id the session id
+     * @param r the row
+     * @param c the column
+     * @return the future message
+     */
+    public CompletableFuture<String> select(long id, int r, int c){
+        return session(id).enqueue(s -> CompletableFuture.completedFuture(s.select(r, c)), this.commands);
+    }
+
+    /**
+     * Make the next move of a shortest solution in a game
+     * @param id the session id
+     * @return the future message
+     */
+    public CompletableFuture<String> hint(long id){
+        return session(id).enqueue(s -> s.hint(this.hints), this.commands);
+    }
+
+    /**
+     * Go back to the beginning of a game
+     * @param id the session id
+     * @return the future message
+     */
+    public CompletableFuture<String> reset(long id){
+        return session(id).enqueue(s -> CompletableFuture.completedFuture(s.reset()), this.commands);
+    }
+
+    /**
+     * Show a game's board after the commands already given
+     * @param id the session id
+     * @return the future board in the PTUI format
+     */
+    public CompletableFuture<String> board(long id){
+        return session(id).enqueue(s -> CompletableFuture.completedFuture(s.board()), this.commands);
+    }
+
+    /**
+     * @param id the session id
+     * @return the session
+     * @throws IllegalArgumentException if there is no open session with the id
+     */
+    public GameSession session(long id){
+        GameSession session = this.sessions.get(id);
+        if (session == null){
+            throw new IllegalArgumentException("No session " + id);
+        }
+        return session;
+    }
+
+    /**
+     * @return the number of open sessions
+     */
+    public int size(){
+        return this.sessions.size();
+    }
+
+    /**
+     * Stop running commands and hint searches
+     */
+    public void shutdown(){
+        this.commands.shutdownNow();
+        this.solvers.shutdownNow();
+    }
+}
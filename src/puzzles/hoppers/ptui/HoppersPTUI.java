@@ -4,16 +4,37 @@ import puzzles.common.Coordinates;
 import puzzles.common.Observer;
 import puzzles.hoppers.model.HoppersModel;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.InputStreamReader;
 
 /**
- * This class is used to run simulations of the hoppers puzzle in a plain text user interface
+ * This class is used to run simulations of the hoppers puzzle in a plain text user interface.
+ * Everything it prints goes into a buffer first, so the same commands can be run headless
+ * by the ReplayEngine, which reads the buffer instead of printing it.
  * @author Jake Edelstein
  */
 public class HoppersPTUI implements Observer<HoppersModel, String> {
 
-    private static HoppersModel model;
+    private HoppersModel model;
+
+    /** the output since it was last printed */
+    private final StringBuilder out;
+
+    /**
+     * Create a PTUI that writes into a buffer
+     * @param out the buffer, which the caller may empty between commands
+     */
+    public HoppersPTUI(StringBuilder out){
+        this.out = out;
+    }
+
+    /**
+     * Create a PTUI that prints to standard output
+     */
+    public HoppersPTUI(){
+        this(new StringBuilder());
+    }
 
     /**
      * Update the model with the latest changes
@@ -22,7 +43,7 @@ public class HoppersPTUI implements Observer<HoppersModel, String> {
      */
     @Override
     public void update(HoppersModel model, String msg) {
-        System.out.println(msg);
+        println(msg);
     }
 
     /**
@@ -50,42 +71,99 @@ public class HoppersPTUI implements Observer<HoppersModel, String> {
      * @throws IOException if there is an error reading the file
      */
     public void run() throws IOException {
-        System.out.println(model.ptuiToString());
-        System.out.println(HoppersModel.commands);
-        Scanner in = new Scanner(System.in);
+        start();
+        flush();
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
         // user inputs
-        while (in.hasNextLine()){
-            String[] nextCommand = in.nextLine().split(" ");
-            // quit command
-            if (nextCommand[0].equals("q") || nextCommand[0].equals("quit")){
+        String line;
+        while ((line = in.readLine()) != null){
+            boolean more = execute(line);
+            flush();
+            if (!more){
                 model.quit();
             }
-            // hint command
-            else if (nextCommand[0].equals("h") || nextCommand[0].equals("hint")){
-                model.hint();
-                System.out.println(model.ptuiToString());
-            }
-            // reset command
-            else if (nextCommand[0].equals("r") || nextCommand[0].equals("reset")){
-                model.reset();
-                System.out.println(model.ptuiToString());
-            }
-            // load command
-            else if (nextCommand.length == 2 && (nextCommand[0].equals("l") || nextCommand[0].equals("load"))){
-                model.load(nextCommand[1]);
-                System.out.println(model.ptuiToString());
-            }
-            // select command
-            else if (nextCommand.length == 3 && (nextCommand[0].equals("s") || nextCommand[0].equals("select"))){
-                model.select(new Coordinates(Integer.parseInt(nextCommand[1]), Integer.parseInt(nextCommand[2])));
-                System.out.println(model.ptuiToString());
-            }
-            // response to invalid input
-            else {
-                update(model, "> Invalid command");
-                System.out.println(HoppersModel.commands);
-                System.out.println(model.ptuiToString());
-            }
         }
     }
+
+    /**
+     * Show the board and the commands, as is done before the first command
+     */
+    public void start(){
+        printBoard();
+        println(HoppersModel.commands);
+    }
+
+    /**
+     * Run one command
+     * @param line the command as the user typed it
+     * @return false if the command was quit, which the caller has to carry out
+     */
+    public boolean execute(String line){
+        String[] nextCommand = line.split(" ");
+        // quit command
+        if (nextCommand[0].equals("q") || nextCommand[0].equals("quit")){
+            return false;
+        }
+        // hint command
+        else if (nextCommand[0].equals("h") || nextCommand[0].equals("hint")){
+            model.hint();
+            printBoard();
+        }
+        // reset command
+        else if (nextCommand[0].equals("r") || nextCommand[0].equals("reset")){
+            model.reset();
+            printBoard();
+        }
+        // undo command
+        else if (nextCommand[0].equals("u") || nextCommand[0].equals("undo")){
+            model.undo();
+            printBoard();
+        }
+        // redo command
+        else if (nextCommand[0].equals("redo")){
+            model.redo();
+            printBoard();
+        }
+        // load command
+        else if (nextCommand.length == 2 && (nextCommand[0].equals("l") || nextCommand[0].equals("load"))){
+            model.load(nextCommand[1]);
+            printBoard();
+        }
+        // select command
+        else if (nextCommand.length == 3 && (nextCommand[0].equals("s") || nextCommand[0].equals("select"))){
+            model.select(new Coordinates(Integer.parseInt(nextCommand[1]), Integer.parseInt(nextCommand[2])));
+            printBoard();
+        }
+        // response to invalid input
+        else {
+            update(model, "> Invalid command");
+            println(HoppersModel.commands);
+            printBoard();
+        }
+        return true;
+    }
+
+    /**
+     * Add the board and a line break to the output
+     */
+    private void printBoard(){
+        model.ptuiToString(this.out);
+        this.out.append(System.lineSeparator());
+    }
+
+    /**
+     * Add a line to the output
+     */
+    private void println(String line){
+        this.out.append(line).append(System.lineSeparator());
+    }
+
+    /**
+     * Print the output and empty the buffer
+     */
+    private void flush(){
+        System.out.print(this.out);
+        System.out.flush();
+        this.out.setLength(0);
+    }
 }
@@ -0,0 +1,234 @@
+package puzzles.hoppers.ptui;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class replays recorded PTUI sessions without a terminal and checks each transcript
+ * against the expected one. A session is a file of commands named like
+ * hoppers-4-ptui-in.txt, played on the puzzle hoppers-4.txt from the data directory, and
+ * its expected transcript is the file next to it ending in -out.txt instead of -in.txt.
+ *
+ * Sessions run in parallel, each on its own HoppersPTUI and model. Each thread renders into
+ * one buffer that it empties for every session, and the results are written in large
+ * batches. Transcripts are compared line by line, ignoring the line endings and spaces at
+ * the ends of lines.
+ *
+ * Usage: java ReplayEngine [--data dir] [--threads n] [--update] [--quiet] file-or-dir...
+ * @author Jake Edelstein
+ */
+public class ReplayEngine {
+    /** the size of the buffer results are written through */
+    private static final int BATCH_BYTES = 1 << 16;
+    /** the number of sessions each thread takes at a time */
+    private static final int SESSIONS_PER_TASK = 64;
+
+    private final Path dataDir;
+    private final boolean update;
+    /** the buffer each thread renders its sessions into */
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(1 << 14));
+
+    /**
+     * What replaying one session found
+     */
+    public static class Result {
+        private final Path script;
+        private final boolean passed;
+        private final String message;
+
+        Result(Path script, boolean passed, String message){
+            this.script = script;
+            this.passed = passed;
+            this.message = message;
+        }
+
+        /** getters for private values */
+        public Path getScript() {
+            return this.script;
+        }
+
+        public boolean isPassed() {
+            return this.passed;
+        }
+
+        public String getMessage() {
+            return this.message;
+        }
+
+        @Override
+        public String toString(){
+            return (this.passed ? "PASS " : "FAIL ") + this.script + (this.message == null ? "" : ": " + this.message);
+        }
+    }
+
+    /**
+     * @param dataDir the directory the puzzles are in
+     * @param update true to write each transcript as the expected one instead of checking it
+     */
+    public ReplayEngine(Path dataDir, boolean update){
+        this.dataDir = dataDir;
+        this.update = update;
+    }
+
+    /**
+     * Replay one session
+     * @param script the commands
+     * @return what it found
+     */
+    public Result replay(Path script){
+        String name = script.getFileName().toString();
+        if (!name.endsWith("-in.txt")){
+            return new Result(script, false, "not a session, the name must end in -in.txt");
+        }
+        Path expected = script.resolveSibling(name.substring(0, name.length() - "-in.txt".length()) + "-out.txt");
+        String puzzle = name.substring(0, name.length() - "-in.txt".length()).replaceFirst("-ptui$", "") + ".txt";
+        StringBuilder out = this.buffers.get();
+        out.setLength(0);
+        try {
+            HoppersPTUI ptui = new HoppersPTUI(out);
+            ptui.init(this.dataDir.resolve(puzzle).toString());
+            ptui.start();
+            for (String line : Files.readAllLines(script, StandardCharsets.UTF_8)){
+                if (!ptui.execute(line)){
+                    break;
+                }
+            }
+            if (this.update){
+                Files.writeString(expected, out.toString().replace(System.lineSeparator(), "\r\n"), StandardCharsets.UTF_8);
+                return new Result(script, true, "recorded");
+            }
+            if (!Files.exists(expected)){
+                return new Result(script, false, "no " + expected.getFileName());
+            }
+            return compare(script, Files.readString(expected, StandardCharsets.UTF_8), out);
+        } catch (IOException | RuntimeException e) {
+            return new Result(script, false, e.toString());
+        }
+    }
+
+    /**
+     * Compare a transcript to the expected one a line at a time
+     * @return a failing result at the first line that differs, or a passing one
+     */
+    private static Result compare(Path script, String expected, CharSequence actual){
+        List<String> want = expected.lines().map(String::stripTrailing).collect(Collectors.toList());
+        List<String> got = actual.toString().lines().map(String::stripTrailing).collect(Collectors.toList());
+        for (int i = 0; i < Math.max(want.size(), got.size()); i++){
+            String w = i < want.size() ? want.get(i) : "<end>";
+            String g = i < got.size() ? got.get(i) : "<end>";
+            if (!w.equals(g)){
+                return new Result(script, false, "line " + (i + 1) + " expected \"" + w + "\" but was \"" + g + "\"");
+            }
+        }
+        return new Result(script, true, null);
+    }
+
+    /**
+     * Replay many sessions in parallel, writing the results in the order of the sessions
+     * @param scripts the sessions
+     * @param threads the number of threads
+     * @param results where the results are written, one line each
+     * @param quiet true to only write the sessions that failed
+     * @return the number of sessions that failed
+     * @throws IOException if the results can't be written
+     */
+    public int replayAll(List<Path> scripts, int threads, Writer results, boolean quiet) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Result>>> tasks = new ArrayList<>();
+        for (int i = 0; i < scripts.size(); i += SESSIONS_PER_TASK){
+            List<Path> batch = scripts.subList(i, Math.min(i + SESSIONS_PER_TASK, scripts.size()));
+            tasks.add(executor.submit(() -> {
+                List<Result> done = new ArrayList<>(batch.size());
+                for (Path script : batch){
+                    done.add(replay(script));
+                }
+                return done;
+            }));
+        }
+        executor.shutdown();
+        int failed = 0;
+        try {
+            for (Future<List<Result>> task : tasks){
+                for (Result result : task.get()){
+                    if (!result.isPassed()){
+                        failed++;
+                    }
+                    if (!quiet || !result.isPassed()){
+                        results.write(result.toString());
+                        results.write(System.lineSeparator());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            executor.shutdownNow();
+            throw new IOException("Replaying failed", e);
+        }
+        results.flush();
+        return failed;
+    }
+
+    /**
+     * Find the sessions in files and directories
+     * @param paths session files, or directories searched for files ending in -in.txt
+     * @return the sessions, sorted within each directory
+     * @throws IOException if a directory can't be searched
+     */
+    public static List<Path> findScripts(List<Path> paths) throws IOException {
+        List<Path> scripts = new ArrayList<>();
+        for (Path path : paths){
+            if (Files.isDirectory(path)){
+                try (Stream<Path> files = Files.walk(path)){
+                    files.filter(p -> p.getFileName().toString().endsWith("-in.txt")).sorted().forEach(scripts::add);
+                }
+            } else {
+                scripts.add(path);
+            }
+        }
+        return scripts;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dataDir = Path.of("data", "hoppers");
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean update = false;
+        boolean quiet = false;
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--data") && i + 1 < args.length) {
+                dataDir = Path.of(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--update")) {
+                update = true;
+            } else if (args[i].equals("--quiet")) {
+                quiet = true;
+            } else {
+                paths.add(Path.of(args[i]));
+            }
+        }
+        if (paths.isEmpty()) {
+            System.out.println("Usage: java ReplayEngine [--data dir] [--threads n] [--update] [--quiet] file-or-dir...");
+            System.exit(0);
+        }
+        List<Path> scripts = findScripts(paths);
+        long started = System.nanoTime();
+        Writer results = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BATCH_BYTES);
+        int failed = new ReplayEngine(dataDir, update).replayAll(scripts, threads, results, quiet);
+        results.write(scripts.size() + " sessions, " + failed + " failed, "
+                + (System.nanoTime() - started) / 1_000_000 + " ms" + System.lineSeparator());
+        results.flush();
+        System.exit(failed == 0 ? 0 : 1);
+    }
+}
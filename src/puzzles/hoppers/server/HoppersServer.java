@@ -0,0 +1,430 @@
+package puzzles.hoppers.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Solver;
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a long-lived hoppers solver that answers HTTP requests on the loopback
+ * address only, so a frontend doesn't pay for a new JVM on every puzzle.
+ *
+ * POST /solve takes a board in the same format as the files in data/hoppers and answers
+ * with the board, the number of configurations visited, and the steps of the solution.
+ * Requests that arrive within a short window of each other are collected into one batch,
+ * and the boards of a batch are grouped by puzzle, meaning the same size and the same
+ * water. Each group is solved on one solver thread, boards with the most green frogs
+ * first. Every jump takes away one green frog, so every solution of a board is a shortest
+ * one, and every board on it is answered by the rest of the path. Those answers go into
+ * the LRU, so later boards of the group that lie on an earlier solution, such as the
+ * boards of one game asked for hint after hint, are answered without a search and report
+ * no configurations visited. A board that is already being solved isn't solved again;
+ * every request for it waits on the same answer. Recent answers are kept in a small LRU.
+ *
+ * GET /stats answers with the request counters and latency histograms.
+ * @author Jake Edelstein
+ */
+public class HoppersServer {
+    /** the largest request body accepted */
+    private static final int MAX_BODY = 64 * 1024;
+    /** the most cells a board may have, since every cell takes at least two bytes of the body */
+    private static final long MAX_CELLS = MAX_BODY / 2;
+
+    private final HttpServer http;
+    private final ExecutorService solvers;
+    private final long batchWindowNanos;
+    private final int maxBatch;
+    /** requests waiting for the batcher */
+    private final LinkedBlockingQueue<Pending> incoming = new LinkedBlockingQueue<>();
+    /** boards being solved right now, by their text */
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    /** recent answers by board text, least recently used first */
+    private final LinkedHashMap<String, String> results;
+    private final Thread batcher;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    /** boards of a batch answered by the solution of another board in it */
+    private final AtomicLong shared = new AtomicLong();
+    private final AtomicLong solved = new AtomicLong();
+    private final AtomicLong badRequests = new AtomicLong();
+    /** time from receiving a request to sending its answer */
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+    /** time spent searching, only for boards that were actually solved */
+    private final LatencyHistogram solveLatency = new LatencyHistogram();
+
+    /**
+     * A board waiting to be solved, and the future its requests wait on
+     */
+    private static class Pending {
+        private final HoppersConfig config;
+        private final CompletableFuture<String> answer;
+
+        Pending(HoppersConfig config, CompletableFuture<String> answer){
+            this.config = config;
+            this.answer = answer;
+        }
+    }
+
+    /**
+     * Create a server on the loopback address. It doesn't answer until start() is called.
+     * @param port the port, or 0 for any free port
+     * @param solverThreads the number of groups of boards solved at the same time
+     * @param batchWindowMillis how long the batcher waits for more requests after the first
+     * @param maxBatch the most boards in one batch
+     * @param cacheSize the number of recent answers kept
+     * @throws IOException if the port can't be bound
+     */
+    public HoppersServer(int port, int solverThreads, long batchWindowMillis, int maxBatch,
+                         int cacheSize) throws IOException {
+        this.http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.solvers = Executors.newFixedThreadPool(solverThreads, daemon("hoppers-solver"));
+        this.batchWindowNanos = batchWindowMillis * 1_000_000;
+        this.maxBatch = maxBatch;
+        this.results = new LinkedHashMap<>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        // handlers block until their board is solved, so they get their own threads
+        this.http.setExecutor(Executors.newCachedThreadPool(daemon("hoppers-http")));
+        this.http.createContext("/solve", this::handleSolve);
+        this.http.createContext("/stats", this::handleStats);
+        this.batcher = daemon("hoppers-batcher").newThread(this::batchLoop);
+    }
+
+    /**
+     * @param name the name of the threads
+     * @return a factory for daemon threads, so the server never keeps the JVM alive by itself
+     */
+    private static ThreadFactory daemon(String name){
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Start answering requests
+     */
+    public void start(){
+        this.batcher.start();
+        this.http.start();
+    }
+
+    /**
+     * Stop answering requests and interrupt the running solves
+     */
+    public void stop(){
+        this.http.stop(0);
+        this.batcher.interrupt();
+        this.solvers.shutdownNow();
+    }
+
+    /**
+     * @return the port the server is listening on
+     */
+    public int getPort(){
+        return this.http.getAddress().getPort();
+    }
+
+    /**
+     * Answer a board, from the LRU, from a solve already in flight, or from a new solve
+     * @param config the board
+     * @return the answer text
+     */
+    public String solve(HoppersConfig config) throws InterruptedException {
+        String key = config.toString();
+        String cached;
+        synchronized (this.results){
+            cached = this.results.get(key);
+        }
+        if (cached != null){
+            this.cacheHits.incrementAndGet();
+            return cached;
+        }
+        boolean[] created = new boolean[1];
+        CompletableFuture<String> answer = this.inFlight.computeIfAbsent(key, k -> {
+            created[0] = true;
+            CompletableFuture<String> future = new CompletableFuture<>();
+            this.incoming.add(new Pending(config, future));
+            return future;
+        });
+        if (!created[0]){
+            this.joined.incrementAndGet();
+        }
+        try {
+            return answer.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("solve failed", e.getCause());
+        }
+    }
+
+    /**
+     * Collect the requests that arrive within the batch window of the first one, then hand
+     * each group of boards of the same puzzle to a solver thread
+     */
+    private void batchLoop(){
+        List<Pending> batch = new ArrayList<>();
+        try {
+            while (!Thread.currentThread().isInterrupted()){
+                batch.add(this.incoming.take());
+                long deadline = System.nanoTime() + this.batchWindowNanos;
+                while (batch.size() < this.maxBatch){
+                    long left = deadline - System.nanoTime();
+                    Pending next = left > 0 ? this.incoming.poll(left, TimeUnit.NANOSECONDS) : this.incoming.poll();
+                    if (next == null){
+                        break;
+                    }
+                    batch.add(next);
+                }
+                this.batches.incrementAndGet();
+                Map<String, List<Pending>> groups = new LinkedHashMap<>();
+                for (Pending pending : batch){
+                    groups.computeIfAbsent(puzzleKey(pending.config), k -> new ArrayList<>()).add(pending);
+                }
+                for (List<Pending> group : groups.values()){
+                    this.solvers.execute(() -> runGroup(group));
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    /**
+     * @param config a board
+     * @return its size and where its water is, which every board of one puzzle shares
+     */
+    private static String puzzleKey(HoppersConfig config){
+        StringBuilder key = new StringBuilder();
+        key.append(config.getNumRows()).append('x').append(config.getNumCols()).append(':');
+        for (char[] row : config.getGrid()){
+            for (char cell : row){
+                key.append(cell == HoppersConfig.WATER ? '*' : '.');
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the number of green frogs on a board
+     */
+    private static int countGreens(HoppersConfig config){
+        int greens = 0;
+        for (char[] row : config.getGrid()){
+            for (char cell : row){
+                greens += cell == HoppersConfig.GREEN_FROG ? 1 : 0;
+            }
+        }
+        return greens;
+    }
+
+    /**
+     * Answer the boards of one puzzle on a solver thread, most green frogs first, so a
+     * board that lies on the solution of an earlier one is answered from the LRU
+     * @param group the boards
+     */
+    private void runGroup(List<Pending> group){
+        group.sort(Comparator.comparingInt((Pending pending) -> countGreens(pending.config)).reversed());
+        for (Pending pending : group){
+            String key = pending.config.toString();
+            String known;
+            synchronized (this.results){
+                known = this.results.get(key);
+            }
+            if (known != null){
+                this.shared.incrementAndGet();
+                this.inFlight.remove(key, pending.answer);
+                pending.answer.complete(known);
+            } else {
+                run(pending);
+            }
+        }
+    }
+
+    /**
+     * Solve one board, remember the answer of every board on its solution, and wake its requests
+     * @param pending the board
+     */
+    private void run(Pending pending){
+        String key = pending.config.toString();
+        try {
+            long started = System.nanoTime();
+            Solver solver = new Solver();
+            HashMap<Configuration, Configuration> predecessors = solver.findSolution(pending.config);
+            List<String> path = solver.buildPath(predecessors, pending.config, solver.getEndConfig());
+            this.solveLatency.record(System.nanoTime() - started);
+            this.solved.incrementAndGet();
+            // the static statistics of Solver are shared by every thread, so use this solve's progress
+            String answer = answer(key, solver.getLastProgress().getVisited(), path);
+            synchronized (this.results){
+                this.results.put(key, answer);
+                for (int step = 1; path != null && step < path.size(); step++){
+                    this.results.put(path.get(step), answer(path.get(step), 0, path.subList(step, path.size())));
+                }
+            }
+            pending.answer.complete(answer);
+        } catch (Throwable t) {
+            pending.answer.completeExceptionally(t);
+        } finally {
+            this.inFlight.remove(key, pending.answer);
+        }
+    }
+
+    /**
+     * Write an answer like the Hoppers program does
+     * @param board the board
+     * @param visited the number of configurations visited
+     * @param path the steps of the solution, or null if there is none
+     * @return the answer text
+     */
+    private static String answer(String board, long visited, List<String> path){
+        StringBuilder s = new StringBuilder();
+        s.append(board).append('\n');
+        s.append("Visited configurations: ").append(visited).append('\n');
+        if (path == null){
+            s.append("No solution\n");
+        } else {
+            for (int step = 0; step < path.size(); step++){
+                s.append("\nStep ").append(step).append(": \n").append(path.get(step)).append('\n');
+            }
+        }
+        return s.toString();
+    }
+
+    /**
+     * Handle POST /solve
+     * @param exchange the request
+     */
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        long started = System.nanoTime();
+        this.requests.incrementAndGet();
+        try {
+            if (!exchange.getRequestMethod().equals("POST")){
+                send(exchange, 405, "Use POST with a hoppers board\n");
+                return;
+            }
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()){
+                body = in.readNBytes(MAX_BODY + 1);
+            }
+            if (body.length > MAX_BODY){
+                this.badRequests.incrementAndGet();
+                send(exchange, 413, "Board too large\n");
+                return;
+            }
+            if (!sizeAllowed(body)){
+                this.badRequests.incrementAndGet();
+                send(exchange, 400, "Not a hoppers board\n");
+                return;
+            }
+            HoppersConfig config;
+            try {
+                config = new HoppersConfig(new StringReader(new String(body, StandardCharsets.UTF_8)));
+            } catch (IOException | RuntimeException e) {
+                this.badRequests.incrementAndGet();
+                send(exchange, 400, "Not a hoppers board\n");
+                return;
+            }
+            send(exchange, 200, solve(config));
+        } catch (InterruptedException e) {
+            send(exchange, 503, "Server stopping\n");
+        } catch (RuntimeException e) {
+            send(exchange, 500, "Solve failed\n");
+        } finally {
+            this.requestLatency.record(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Check the size on the first line of a board before the grid is made, since a
+     * short body can ask for a grid far too large for the heap
+     * @param body the request body
+     * @return true if the size is two positive numbers with at most MAX_CELLS cells
+     */
+    private static boolean sizeAllowed(byte[] body){
+        String text = new String(body, StandardCharsets.UTF_8);
+        int end = text.indexOf('\n');
+        String[] dims = (end < 0 ? text : text.substring(0, end)).trim().split("\\s+");
+        try {
+            long rows = Long.parseLong(dims[0]);
+            long cols = dims.length == 2 ? Long.parseLong(dims[1]) : -1;
+            return rows > 0 && cols > 0 && rows * cols <= MAX_CELLS;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Handle GET /stats
+     * @param exchange the request
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        String stats = "requests: " + this.requests.get() + "\n"
+                + "bad requests: " + this.badRequests.get() + "\n"
+                + "cache hits: " + this.cacheHits.get() + "\n"
+                + "joined in flight: " + this.joined.get() + "\n"
+                + "batches: " + this.batches.get() + "\n"
+                + "answered from a batch solution: " + this.shared.get() + "\n"
+                + "solved: " + this.solved.get() + "\n"
+                + "request latency: " + this.requestLatency
+                + "solve latency: " + this.solveLatency;
+        send(exchange, 200, stats);
+    }
+
+    /**
+     * Send a plain text response and close the exchange
+     */
+    private static void send(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()){
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        HoppersServer server = new HoppersServer(port, Runtime.getRuntime().availableProcessors(),
+                5, 64, 1024);
+        server.start();
+        System.out.println("Hoppers server on http://localhost:" + server.getPort() + "/solve");
+        // the server threads are daemons, so keep the main thread waiting
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            server.stop();
+        }
+    }
+}
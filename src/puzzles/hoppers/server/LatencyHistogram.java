@@ -0,0 +1,76 @@
+package puzzles.hoppers.server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class counts request latencies in buckets that double in width, starting at one
+ * microsecond, so it can be updated from many threads without locking
+ * @author Jake Edelstein
+ */
+public class LatencyHistogram {
+    /** bucket i holds latencies below 2^i microseconds, the last one holds the rest */
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Count one latency
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos){
+        long micros = Math.max(1, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        this.counts.incrementAndGet(bucket);
+    }
+
+    /**
+     * @return the number of latencies counted
+     */
+    public long count(){
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++){
+            total += this.counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Find the bucket a percentile falls in
+     * @param percentile between 0 and 100
+     * @return the upper bound of the bucket in microseconds, or 0 if nothing was counted
+     */
+    public long percentile(double percentile){
+        long total = count();
+        if (total == 0){
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++){
+            seen += this.counts.get(i);
+            if (seen >= rank){
+                return 1L << i;
+            }
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    /**
+     * @return the count and percentiles, then one line per non-empty bucket
+     */
+    @Override
+    public String toString(){
+        StringBuilder s = new StringBuilder();
+        s.append("count=").append(count())
+                .append(" p50<").append(percentile(50)).append("us")
+                .append(" p90<").append(percentile(90)).append("us")
+                .append(" p99<").append(percentile(99)).append("us\n");
+        for (int i = 0; i < BUCKETS; i++){
+            long n = this.counts.get(i);
+            if (n > 0){
+                s.append("  <").append(1L << i).append("us: ").append(n).append('\n');
+            }
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,157 @@
+package puzzles.hoppers.solver;
+
+import puzzles.hoppers.model.HoppersConfig;
+
+/**
+ * This class holds the masks for treating a hoppers board as two 64 bit masks, one bit per
+ * cell in row order: one mask for the green frogs and one for the red frogs. A jump in one
+ * direction moves a frog the same number of bits for every cell, so checking a direction
+ * for every frog at once is a few shifts and ands. Boards with more than 64 cells don't fit.
+ * @author Jake Edelstein
+ */
+public class Bitboard {
+    /** the row and column changes of the 8 jumps, in the same order as HoppersConfig.getNeighbors() */
+    static final int[][] JUMPS = {{-4, 0}, {4, 0}, {0, 4}, {0, -4}, {-2, 2}, {2, 2}, {-2, -2}, {2, -2}};
+    /** the number of jump directions */
+    public static final int DIRECTIONS = JUMPS.length;
+
+    private final int numRows;
+    private final int numCols;
+    /** the cells that are lily pads */
+    private final long pads;
+    /** for each direction, the bit offset from a frog to the cell it lands on */
+    private final int[] offsets = new int[DIRECTIONS];
+    /** for each direction, the pads a frog can jump from without leaving the board or landing in water */
+    private final long[] from = new long[DIRECTIONS];
+    private final long startGreen;
+    private final long startRed;
+
+    /**
+     * Build the masks of a puzzle from its starting configuration
+     * @param start the starting configuration
+     * @throws IllegalArgumentException if the board has more than 64 cells
+     */
+    public Bitboard(HoppersConfig start){
+        this.numRows = start.getNumRows();
+        this.numCols = start.getNumCols();
+        if (this.numRows * this.numCols > 64){
+            throw new IllegalArgumentException("Board has more than 64 cells");
+        }
+        char[][] grid = start.getGrid();
+        long pads = 0;
+        long green = 0;
+        long red = 0;
+        for (int r = 0; r < this.numRows; r++){
+            for (int c = 0; c < this.numCols; c++){
+                long bit = 1L << (r * this.numCols + c);
+                if (grid[r][c] != HoppersConfig.WATER){
+                    pads |= bit;
+                }
+                if (grid[r][c] == HoppersConfig.GREEN_FROG){
+                    green |= bit;
+                } else if (grid[r][c] == HoppersConfig.RED_FROG){
+                    red |= bit;
+                }
+            }
+        }
+        this.pads = pads;
+        this.startGreen = green;
+        this.startRed = red;
+        for (int d = 0; d < DIRECTIONS; d++){
+            int dr = JUMPS[d][0];
+            int dc = JUMPS[d][1];
+            this.offsets[d] = dr * this.numCols + dc;
+            for (int r = 0; r < this.numRows; r++){
+                for (int c = 0; c < this.numCols; c++){
+                    if (isPad(r, c) && isPad(r + dr / 2, c + dc / 2) && isPad(r + dr, c + dc)){
+                        this.from[d] |= 1L << (r * this.numCols + c);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the cell is on the board and not water
+     */
+    private boolean isPad(int r, int c){
+        return r >= 0 && c >= 0 && r < this.numRows && c < this.numCols
+                && (this.pads >>> (r * this.numCols + c) & 1) != 0;
+    }
+
+    /**
+     * Move every bit of a mask by an offset, so the bit of cell i + offset ends up at cell i
+     * @param mask the mask
+     * @param offset the offset, which may be negative
+     * @return the moved mask
+     */
+    static long shift(long mask, int offset){
+        return offset >= 0 ? mask >>> offset : mask << -offset;
+    }
+
+    /**
+     * Find the frogs that can jump in one direction. This is the work the kernels do for a
+     * whole block of boards at once.
+     * @param green the green frogs
+     * @param red the red frogs
+     * @param d the direction
+     * @return the frogs that can jump
+     */
+    long movable(long green, long red, int d){
+        long frogs = green | red;
+        long empty = this.pads & ~frogs;
+        return frogs & this.from[d] & shift(green, this.offsets[d] / 2) & shift(empty, this.offsets[d]);
+    }
+
+    /**
+     * Write a board in the same format as HoppersConfig.toString()
+     * @param green the green frogs
+     * @param red the red frogs
+     * @return the board
+     */
+    public String toString(long green, long red){
+        StringBuilder s = new StringBuilder();
+        for (int r = 0; r < this.numRows; r++){
+            for (int c = 0; c < this.numCols; c++){
+                if (c != 0){
+                    s.append(' ');
+                }
+                long bit = 1L << (r * this.numCols + c);
+                if ((green & bit) != 0){
+                    s.append(HoppersConfig.GREEN_FROG);
+                } else if ((red & bit) != 0){
+                    s.append(HoppersConfig.RED_FROG);
+                } else if ((this.pads & bit) != 0){
+                    s.append(HoppersConfig.NO_FROG);
+                } else {
+                    s.append(HoppersConfig.WATER);
+                }
+            }
+            if (r != this.numRows - 1){
+                s.append('\n');
+            }
+        }
+        return s.toString();
+    }
+
+    /** getters for private values */
+    public long getPads() {
+        return this.pads;
+    }
+
+    public int getOffset(int d) {
+        return this.offsets[d];
+    }
+
+    public long getFrom(int d) {
+        return this.from[d];
+    }
+
+    public long getStartGreen() {
+        return this.startGreen;
+    }
+
+    public long getStartRed() {
+        return this.startRed;
+    }
+}
@@ -0,0 +1,212 @@
+package puzzles.hoppers.solver;
+
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * This class is a breadth-first search for hoppers boards of up to 64 cells that keeps each
+ * board as two longs instead of a HoppersConfig. Visited boards are kept in arrays in the
+ * order they were found, which is also the order of the queue, so the frontier is just a
+ * range of those arrays and is handed to the ExpansionKernel in blocks.
+ *
+ * Boards are expanded in the same order as Solver expands HoppersConfig neighbors, so it
+ * finds the same path and counts the same number of configurations.
+ * @author Jake Edelstein
+ */
+public class BitboardSolver {
+    /** the number of boards handed to the kernel at once */
+    private static final int BLOCK = 1024;
+
+    private final ExpansionKernel kernel;
+    private long[] green = new long[BLOCK];
+    private long[] red = new long[BLOCK];
+    private int[] parents = new int[BLOCK];
+    private int size = 0;
+    /** open addressing table of visited board indexes plus one, 0 for an empty slot */
+    private int[] table = new int[2 * BLOCK];
+    private long generated = 0;
+    private int expanded = 0;
+
+    /**
+     * @param kernel finds the movable frogs of each block of boards
+     */
+    public BitboardSolver(ExpansionKernel kernel){
+        this.kernel = kernel;
+    }
+
+    /**
+     * Find the shortest path to a board with only the red frog left
+     * @param start the starting configuration
+     * @return the path, or null if there is no solution
+     * @throws IllegalArgumentException if the board has more than 64 cells
+     */
+    public List<String> solve(HoppersConfig start){
+        Bitboard board = new Bitboard(start);
+        int end = search(board, true);
+        return end < 0 ? null : path(board, end);
+    }
+
+    /**
+     * Find every board reachable from the start of a puzzle
+     * @param board the masks of the puzzle
+     * @return the green frogs and the red frogs of each board, in the order they were found
+     */
+    long[][] reachable(Bitboard board){
+        search(board, false);
+        return new long[][]{Arrays.copyOf(this.green, this.size), Arrays.copyOf(this.red, this.size)};
+    }
+
+    /**
+     * Search breadth first from the start of a puzzle
+     * @param board the masks of the puzzle
+     * @param stopAtGoal whether to stop at the first board with only the red frog left
+     * @return the index of that board, or -1 if there is none or the search didn't stop
+     */
+    private int search(Bitboard board, boolean stopAtGoal){
+        add(board.getStartGreen(), board.getStartRed(), -1);
+        long[][] movable = new long[Bitboard.DIRECTIONS][BLOCK];
+        int head = 0;
+        while (head < this.size){
+            int blockEnd = Math.min(head + BLOCK, this.size);
+            this.kernel.movable(board, this.green, this.red, head, blockEnd, movable);
+            for (int i = head; i < blockEnd; i++){
+                long g = this.green[i];
+                long r = this.red[i];
+                if (stopAtGoal && g == 0 && r != 0){
+                    return i;
+                }
+                this.expanded++;
+                expand(board, i, g, r, movable, i - head);
+            }
+            head = blockEnd;
+        }
+        return -1;
+    }
+
+    /**
+     * Add the children of one board, by cell in row order and then by direction
+     * @param board the masks of the puzzle
+     * @param parent the index of the board
+     * @param g the green frogs
+     * @param r the red frogs
+     * @param movable the kernel's output for the block
+     * @param lane the board's index in the block
+     */
+    private void expand(Bitboard board, int parent, long g, long r, long[][] movable, int lane){
+        long any = 0;
+        for (int d = 0; d < Bitboard.DIRECTIONS; d++){
+            any |= movable[d][lane];
+        }
+        while (any != 0){
+            long bit = any & -any;
+            any ^= bit;
+            int cell = Long.numberOfTrailingZeros(bit);
+            for (int d = 0; d < Bitboard.DIRECTIONS; d++){
+                if ((movable[d][lane] & bit) == 0){
+                    continue;
+                }
+                int offset = board.getOffset(d);
+                long over = 1L << (cell + offset / 2);
+                long land = 1L << (cell + offset);
+                this.generated++;
+                if ((g & bit) != 0){
+                    add((g & ~bit & ~over) | land, r, parent);
+                } else {
+                    add(g & ~over, (r & ~bit) | land, parent);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a board if it hasn't been visited
+     * @param g the green frogs
+     * @param r the red frogs
+     * @param parent the index of the board it was reached from
+     */
+    private void add(long g, long r, int parent){
+        int mask = this.table.length - 1;
+        int slot = hash(g, r) & mask;
+        while (this.table[slot] != 0){
+            int index = this.table[slot] - 1;
+            if (this.green[index] == g && this.red[index] == r){
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (this.size == this.green.length){
+            this.green = Arrays.copyOf(this.green, this.size * 2);
+            this.red = Arrays.copyOf(this.red, this.size * 2);
+            this.parents = Arrays.copyOf(this.parents, this.size * 2);
+        }
+        this.green[this.size] = g;
+        this.red[this.size] = r;
+        this.parents[this.size] = parent;
+        this.size++;
+        this.table[slot] = this.size;
+        if (this.size * 2 > this.table.length){
+            rehash();
+        }
+    }
+
+    /**
+     * Double the table, keeping it at most half full
+     */
+    private void rehash(){
+        this.table = new int[this.table.length * 2];
+        int mask = this.table.length - 1;
+        for (int i = 0; i < this.size; i++){
+            int slot = hash(this.green[i], this.red[i]) & mask;
+            while (this.table[slot] != 0){
+                slot = (slot + 1) & mask;
+            }
+            this.table[slot] = i + 1;
+        }
+    }
+
+    /**
+     * @return a well mixed hash of a board
+     */
+    private static int hash(long g, long r){
+        long h = (g * 0x9E3779B97F4A7C15L) ^ (r * 0xC2B2AE3D27D4EB4FL);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Follow the parents from a board back to the start
+     * @param board the masks of the puzzle
+     * @param end the index of the last board
+     * @return the boards from the start to the end
+     */
+    private List<String> path(Bitboard board, int end){
+        LinkedList<String> path = new LinkedList<>();
+        for (int i = end; i >= 0; i = this.parents[i]){
+            path.addFirst(board.toString(this.green[i], this.red[i]));
+        }
+        return path;
+    }
+
+    /**
+     * @return the configurations made, counted the same way as Solver.totalConfigs
+     */
+    public int getTotalConfigs(){
+        return (int) (this.generated + 1);
+    }
+
+    /**
+     * @return the configurations visited, counted the same way as Solver.uniqueConfigs
+     */
+    public int getUniqueConfigs(){
+        return this.size;
+    }
+
+    /**
+     * @return the number of boards expanded
+     */
+    public int getExpanded(){
+        return this.expanded;
+    }
+}
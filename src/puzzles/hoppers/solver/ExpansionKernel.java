@@ -0,0 +1,42 @@
+package puzzles.hoppers.solver;
+
+/**
+ * This interface finds the frogs that can jump in each direction for a block of boards
+ * stored as bitmasks. It is the inner loop of BitboardSolver.
+ * @author Jake Edelstein
+ */
+public interface ExpansionKernel {
+    /**
+     * Find the movable frogs of boards from through to - 1
+     * @param board the masks of the puzzle
+     * @param green the green frogs of each board
+     * @param red the red frogs of each board
+     * @param from the first board
+     * @param to one past the last board
+     * @param out for each direction, the movable frogs of each board, starting at index 0 for board from
+     */
+    void movable(Bitboard board, long[] green, long[] red, int from, int to, long[][] out);
+
+    /**
+     * @return the name shown in benchmarks
+     */
+    String name();
+
+    /**
+     * Pick the vector kernel if the jdk.incubator.vector module was added to this JVM with
+     * --add-modules, and the scalar kernel if it wasn't
+     * @return the kernel
+     */
+    static ExpansionKernel best(){
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()){
+            try {
+                // loaded by name so this class never links against the incubator module
+                return (ExpansionKernel) Class.forName("puzzles.hoppers.solver.VectorKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // fall back to the scalar kernel
+            }
+        }
+        return new ScalarKernel();
+    }
+}
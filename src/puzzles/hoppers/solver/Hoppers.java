@@ -1,31 +1,339 @@
 package puzzles.hoppers.solver;
 
+import puzzles.common.solver.AnytimeResult;
+import puzzles.common.solver.AnytimeSolver;
+import puzzles.common.solver.AsyncSolver;
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Estimate;
+import puzzles.common.solver.HeapReport;
+import puzzles.common.solver.ExternalSolver;
+import puzzles.common.solver.IterativeDeepeningSolver;
+import puzzles.common.solver.ObjectSizes;
+import puzzles.common.solver.ProbabilisticSolver;
+import puzzles.common.solver.SolutionFile;
+import puzzles.common.solver.SolveBudget;
+import puzzles.common.solver.SolutionCache;
+import puzzles.common.solver.SolveResult;
+import puzzles.common.solver.StateSpaceAnalyzer;
+import puzzles.common.solver.StepWriter;
 import puzzles.common.solver.Solver;
+import puzzles.common.solver.TranspositionTable;
 import puzzles.hoppers.model.HoppersConfig;
+import puzzles.hoppers.model.HoppersPack;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 public class Hoppers {
+    /** the usage message, listing the optional solver modes */
+    private static final String USAGE = "Usage: java Hoppers filename [--external directory] [--ram megabytes]"
+            + " [--checkpoint file] [--resume] [--time-limit milliseconds]"
+            + " [--iddfs table-size] [--eviction lru|fifo|deepest] [--bitboard]"
+            + " [--bloom expected-states] [--fp rate] [--confirm] [--compressed] [--off-heap]"
+            + " [--count] [--enumerate count] [--analyze] [--beam width]"
+            + " [--prune] [--index board-in-pack] [--save solution-file] [--load solution-file]"
+            + " [--text output-file] [--heap-check]";
+
+    /** how many boards the heap check visits before projecting the rest */
+    private static final long HEAP_PROBE_STATES = 20_000;
+
+    /** the smallest --iddfs table, as a fraction of the boards that can be reached */
+    private static final double MIN_TABLE_FRACTION = 0.1;
+
     public static void main(String[] args) throws IOException {
-        if (args.length != 1) {
-            System.out.println("Usage: java Hoppers filename");
-        }
-        // create initial config
-        HoppersConfig config = new HoppersConfig(args[0]);
-        Solver hoppersSolver = new Solver();
-        HashMap<Configuration, Configuration> predecessors =
-                hoppersSolver.findSolution(config);
-        List<String> path = hoppersSolver.buildPath(predecessors, config, Solver.endConfig);
+        if (args.length < 1) {
+            System.out.println(USAGE);
+            System.exit(0);
+        }
+        // optional solver modes after the filename
+        Path externalDir = null;
+        long ramBudget = 256L << 20;
+        Path checkpointFile = null;
+        boolean resume = false;
+        long timeLimit = 0;
+        int tableSize = 0;
+        TranspositionTable.EvictionPolicy eviction = TranspositionTable.EvictionPolicy.LRU;
+        boolean bitboard = false;
+        long bloomStates = 0;
+        double falsePositiveRate = 0.01;
+        boolean confirm = false;
+        boolean compressed = false;
+        boolean offHeap = false;
+        boolean count = false;
+        int enumerate = 0;
+        boolean analyze = false;
+        int beamWidth = 0;
+        boolean prune = false;
+        int packIndex = -1;
+        Path saveFile = null;
+        Path loadFile = null;
+        Path textFile = null;
+        boolean heapCheck = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--external") && i + 1 < args.length) {
+                externalDir = Path.of(args[++i]);
+            } else if (args[i].equals("--ram") && i + 1 < args.length) {
+                ramBudget = Long.parseLong(args[++i]) << 20;
+            } else if (args[i].equals("--checkpoint") && i + 1 < args.length) {
+                checkpointFile = Path.of(args[++i]);
+            } else if (args[i].equals("--resume")) {
+                resume = true;
+            } else if (args[i].equals("--time-limit") && i + 1 < args.length) {
+                timeLimit = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--iddfs") && i + 1 < args.length) {
+                tableSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--eviction") && i + 1 < args.length) {
+                eviction = TranspositionTable.EvictionPolicy.valueOf(args[++i].toUpperCase());
+            } else if (args[i].equals("--bitboard")) {
+                bitboard = true;
+            } else if (args[i].equals("--bloom") && i + 1 < args.length) {
+                bloomStates = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--fp") && i + 1 < args.length) {
+                falsePositiveRate = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--confirm")) {
+                confirm = true;
+            } else if (args[i].equals("--compressed")) {
+                compressed = true;
+            } else if (args[i].equals("--analyze")) {
+                analyze = true;
+            } else if (args[i].equals("--count")) {
+                count = true;
+            } else if (args[i].equals("--enumerate") && i + 1 < args.length) {
+                count = true;
+                enumerate = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--beam") && i + 1 < args.length) {
+                beamWidth = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--index") && i + 1 < args.length) {
+                packIndex = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--save") && i + 1 < args.length) {
+                saveFile = Path.of(args[++i]);
+            } else if (args[i].equals("--load") && i + 1 < args.length) {
+                loadFile = Path.of(args[++i]);
+            } else if (args[i].equals("--text") && i + 1 < args.length) {
+                textFile = Path.of(args[++i]);
+            } else if (args[i].equals("--heap-check")) {
+                heapCheck = true;
+            } else if (args[i].equals("--prune")) {
+                prune = true;
+            } else if (args[i].equals("--off-heap")) {
+                compressed = true;
+                offHeap = true;
+            } else {
+                System.out.println(USAGE);
+                System.exit(0);
+            }
+        }
+        if (resume && checkpointFile == null) {
+            // there is nothing to resume from without a checkpoint file
+            System.out.println(USAGE);
+            System.exit(0);
+        }
+        // the modes that replace the plain search, only one of which can run
+        // the beam search reads --time-limit as its own deadline, so that pair is fine
+        List<String> modes = new ArrayList<>();
+        if (beamWidth > 0) {
+            modes.add("--beam");
+        }
+        if (externalDir != null) {
+            modes.add("--external");
+        }
+        if (bitboard) {
+            modes.add("--bitboard");
+        }
+        if (tableSize > 0) {
+            modes.add("--iddfs");
+        }
+        if (timeLimit > 0 && beamWidth == 0) {
+            modes.add("--time-limit");
+        }
+        if (checkpointFile != null) {
+            modes.add("--checkpoint");
+        }
+        String conflict = null;
+        if (modes.size() > 1) {
+            conflict = String.join(" and ", modes) + " can't be used together";
+        } else if (prune && !modes.isEmpty() && !modes.contains("--checkpoint")) {
+            // only the plain search and its checkpointed form skip pruned boards
+            conflict = "--prune can't be used with " + modes.get(0);
+        } else if (compressed && !modes.isEmpty()) {
+            conflict = (offHeap ? "--off-heap" : "--compressed") + " can't be used with " + modes.get(0);
+        }
+        if (conflict != null) {
+            System.out.println(conflict);
+            System.out.println(USAGE);
+            System.exit(0);
+        }
+        // create initial config, from a text file or from one board of a pack
+        HoppersConfig config = packIndex >= 0 ? HoppersPack.open(Path.of(args[0])).get(packIndex)
+                : new HoppersConfig(args[0]);
+        if (loadFile != null) {
+            // print a saved solution in the format of the output files instead of solving
+            SolutionFile solution = SolutionFile.read(loadFile, config, null);
+            StepWriter writer = new StepWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true);
+            writeText(writer, args[0], config, solution.getTotalConfigs(), solution.getUniqueConfigs(),
+                    solution.hasSolution() ? solution.steps(config) : null);
+            writer.flush();
+            return;
+        }
+        if (analyze) {
+            // report the shape of the whole state space as JSON
+            System.out.println(new StateSpaceAnalyzer().analyze(config).toJson());
+            return;
+        }
+        if (count) {
+            // count every solution instead of finding the shortest one
+            SolutionCounter counter = new SolutionCounter();
+            System.out.println("File: " + args[0]);
+            System.out.println(config);
+            System.out.println("Solutions: " + counter.count(config));
+            System.out.println("Boards counted: " + counter.getTableSize());
+            Iterator<List<String>> solutions = counter.solutions(config);
+            for (int n = 1; n <= enumerate && solutions.hasNext(); n++) {
+                List<String> solution = solutions.next();
+                System.out.println("\nSolution " + n + ":");
+                for (int step = 0; step < solution.size(); step++){
+                    System.out.println("\nStep " + step + ": \n" + solution.get(step));
+                }
+            }
+            return;
+        }
+        if (bloomStates > 0) {
+            // only estimate solvability and the size of the state space
+            ProbabilisticSolver probabilisticSolver = new ProbabilisticSolver(bloomStates, falsePositiveRate);
+            Estimate estimate = probabilisticSolver.explore(config);
+            System.out.println("File: " + args[0]);
+            System.out.println(config);
+            System.out.println("Estimate: " + estimate);
+            if (confirm) {
+                List<String> confirmed = probabilisticSolver.confirm(config, estimate);
+                if (confirmed != null) {
+                    System.out.println("Confirmed: solution in " + (confirmed.size() - 1) + " moves");
+                } else if (probabilisticSolver.isConfirmComplete()) {
+                    System.out.println("Confirmed: no solution");
+                } else {
+                    System.out.println("Confirmed: no solution within " + estimate.getDepth() + " moves");
+                }
+            }
+            return;
+        }
+        if (heapCheck) {
+            // every jump takes away a green frog, so no board is deeper than the number of green frogs
+            int greens = countGreens(config);
+            long heap = Runtime.getRuntime().maxMemory();
+            long direct = ObjectSizes.maxDirectMemory();
+            Solver probe = new Solver();
+            probe.setCompressedFrontier(compressed, offHeap);
+            probe.setPruner(prune ? new HoppersPruner(config) : null);
+            HeapReport report = probe.measureHeap(config, greens, HEAP_PROBE_STATES);
+            System.out.println("Heap: " + report);
+            if (!report.fits(heap, direct) && !compressed && modes.isEmpty()) {
+                // the frontier may fit once it is packed off the heap, which only the plain search does
+                probe.setCompressedFrontier(true, true);
+                report = probe.measureHeap(config, greens, HEAP_PROBE_STATES);
+                if (report.fits(heap, direct)) {
+                    System.out.println("Rerouting to --off-heap: " + report);
+                    compressed = true;
+                    offHeap = true;
+                }
+            }
+            if (!report.fits(heap, direct)) {
+                System.out.println("Refusing: projected " + (report.getPeakBytes() == Long.MAX_VALUE ? "unbounded"
+                        : (report.getPeakBytes() >> 20) + " MB") + " but the heap is " + (heap >> 20) + " MB"
+                        + (report.isOffHeapFrontier() ? ", and " + (report.getPeakDirectBytes() >> 20)
+                        + " MB direct of " + (direct >> 20) + " MB" : ""));
+                System.exit(2);
+            }
+        }
+        List<String> path;
+        SolveResult limited = null;
+        AnytimeResult anytime = null;
+        HoppersPruner pruner = prune ? new HoppersPruner(config) : null;
+        if (beamWidth > 0) {
+            // search with a heuristic beam, reporting each better solution as it is found
+            // every solution takes one jump per green frog, so the first one found is a shortest one
+            AnytimeSolver anytimeSolver = new AnytimeSolver(beamWidth, HoppersHeuristic::score, countGreens(config));
+            anytime = anytimeSolver.solve(config, timeLimit,
+                    (solver, result) -> System.out.println("Found: " + result));
+            path = anytime.getPath();
+        } else if (externalDir != null) {
+            // keep the search layers on disk instead of the heap
+            ExternalSolver externalSolver = new ExternalSolver(externalDir, ramBudget);
+            path = externalSolver.solve(config);
+        } else if (bitboard && config.getNumRows() * config.getNumCols() <= 64) {
+            // search boards packed into bitmasks, a block of boards at a time
+            BitboardSolver bitboardSolver = new BitboardSolver(ExpansionKernel.best());
+            path = bitboardSolver.solve(config);
+            Solver.totalConfigs = bitboardSolver.getTotalConfigs();
+            Solver.uniqueConfigs = bitboardSolver.getUniqueConfigs();
+        } else if (tableSize > 0) {
+            // trade time for memory with a bounded transposition table
+            // every jump takes away a green frog, so no solution is longer than the number of green frogs
+            int greens = countGreens(config);
+            // a table far smaller than the reachable boards searches the same boards over and over
+            long reachable = new Solver().measureHeap(config, greens, HEAP_PROBE_STATES).getProjectedStates();
+            if (tableSize < reachable * MIN_TABLE_FRACTION) {
+                System.out.println("Refusing: a table of " + tableSize + " is too small for about " + reachable
+                        + " reachable boards, use --iddfs " + (long) Math.ceil(reachable * MIN_TABLE_FRACTION)
+                        + " or more");
+                System.exit(2);
+            }
+            path = new IterativeDeepeningSolver(tableSize, eviction, greens).solve(config);
+        } else if (timeLimit > 0) {
+            // give up on the search once the time limit runs out
+            limited = new AsyncSolver().solve(config, SolveBudget.ofMillis(timeLimit), null).join();
+            path = limited.getPath();
+        } else if (checkpointFile != null) {
+            Solver hoppersSolver = new Solver();
+            // checkpoint at most once a minute, using at most 5% of the solve time
+            hoppersSolver.setCheckpoint(checkpointFile, 60_000, 0.05);
+            hoppersSolver.setResume(resume);
+            hoppersSolver.setPruner(pruner);
+            HashMap<Configuration, Configuration> predecessors =
+                    hoppersSolver.findSolution(config);
+            path = hoppersSolver.buildPath(predecessors, config, Solver.endConfig);
+        } else if (compressed || prune) {
+            // pack the frontier so wider levels fit in the heap, and skip boards that can't be solved
+            Solver hoppersSolver = new Solver();
+            hoppersSolver.setCompressedFrontier(compressed, offHeap);
+            hoppersSolver.setPruner(pruner);
+            HashMap<Configuration, Configuration> predecessors =
+                    hoppersSolver.findSolution(config);
+            path = hoppersSolver.buildPath(predecessors, config, Solver.endConfig);
+        } else {
+            // reuse the solution from an earlier run if there is one
+            path = SolutionCache.solveCached(config, null);
+        }
+        if (saveFile != null && (limited == null || !limited.isStoppedEarly())) {
+            SolutionFile.write(saveFile, config, null, path, Solver.totalConfigs, Solver.uniqueConfigs);
+        }
+        if (textFile != null && (limited == null || !limited.isStoppedEarly())) {
+            try (StepWriter writer = new StepWriter(Files.newBufferedWriter(textFile), true)) {
+                writeText(writer, args[0], config, Solver.totalConfigs, Solver.uniqueConfigs,
+                        path == null ? null : path.iterator());
+            }
+        }
         // print filename, starting config, and statistics
         System.out.println("File: " + args[0]);
         System.out.println(config);
         System.out.println("Total configurations: " + Solver.totalConfigs);
         System.out.println("Unique configurations: " + Solver.uniqueConfigs);
         // display path if one exists
-        if (path == null){
+        if (pruner != null){
+            System.out.println("Pruned: " + pruner);
+        }
+        if (anytime != null){
+            System.out.println("Result: " + anytime);
+        }
+        if (limited != null && limited.isStoppedEarly()){
+            System.out.println("Unsolved within " + timeLimit + " ms");
+        } else if (path == null){
             System.out.println("No solution");
         } else {
             for (int step = 0; step < path.size(); step++){
@@ -33,4 +341,42 @@ public class Hoppers {
             }
         }
     }
+
+    /**
+     * Write a solve in the format of the files in output/hoppers
+     * @param writer the writer
+     * @param filename the file the board was read from
+     * @param config the starting board
+     * @param totalConfigs the total configurations of the solve
+     * @param uniqueConfigs the unique configurations of the solve
+     * @param steps the steps of the path, or null if there is no solution
+     * @throws IOException if writing fails
+     */
+    private static void writeText(StepWriter writer, String filename, HoppersConfig config,
+                                  int totalConfigs, int uniqueConfigs, Iterator<?> steps) throws IOException {
+        writer.header("File: " + filename);
+        writer.header(config.toString());
+        writer.counts(totalConfigs, uniqueConfigs);
+        if (steps == null) {
+            writer.noSolution();
+        } else {
+            writer.steps(steps);
+        }
+    }
+
+    /**
+     * Count the green frogs on a board. Every jump takes one away, so this is the number of
+     * moves in any solution.
+     * @param config the board
+     * @return the number of green frogs
+     */
+    private static int countGreens(HoppersConfig config) {
+        int greens = 0;
+        for (char[] row : config.getGrid()) {
+            for (char cell : row) {
+                greens += cell == HoppersConfig.GREEN_FROG ? 1 : 0;
+            }
+        }
+        return greens;
+    }
 }
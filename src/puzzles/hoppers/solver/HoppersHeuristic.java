@@ -0,0 +1,57 @@
+package puzzles.hoppers.solver;
+
+import puzzles.common.solver.Configuration;
+import puzzles.hoppers.model.HoppersConfig;
+
+/**
+ * This class scores hoppers boards for AnytimeSolver, lower being closer to solved. Every
+ * green frog left costs a move, and a green frog with no other frog next to it along any
+ * jump line costs extra, since nothing can jump it until another frog comes over.
+ * @author Jake Edelstein
+ */
+public class HoppersHeuristic {
+    /** the cells next to a frog along the 8 jump lines, the pads a jump goes over */
+    private static final int[][] ADJACENT = {{-2, 0}, {2, 0}, {0, 2}, {0, -2}, {-1, 1}, {1, 1}, {-1, -1}, {1, -1}};
+    /** the cost of each green frog left */
+    private static final int GREEN_COST = 4;
+    /** the extra cost of a green frog with no frog next to it */
+    private static final int ISOLATED_COST = 3;
+
+    /**
+     * Score a board
+     * @param config a HoppersConfig
+     * @return the score, 0 only when no green frogs are left
+     */
+    public static int score(Configuration config){
+        HoppersConfig hoppers = (HoppersConfig) config;
+        char[][] grid = hoppers.getGrid();
+        int score = 0;
+        for (int r = 0; r < hoppers.getNumRows(); r++){
+            for (int c = 0; c < hoppers.getNumCols(); c++){
+                if (grid[r][c] == HoppersConfig.GREEN_FROG){
+                    score += GREEN_COST;
+                    if (isIsolated(hoppers, r, c)){
+                        score += ISOLATED_COST;
+                    }
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * @return true if no frog is next to the cell along any jump line
+     */
+    private static boolean isIsolated(HoppersConfig hoppers, int r, int c){
+        char[][] grid = hoppers.getGrid();
+        for (int[] a : ADJACENT){
+            int nr = r + a[0];
+            int nc = c + a[1];
+            if (nr >= 0 && nc >= 0 && nr < hoppers.getNumRows() && nc < hoppers.getNumCols()
+                    && (grid[nr][nc] == HoppersConfig.GREEN_FROG || grid[nr][nc] == HoppersConfig.RED_FROG)){
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,179 @@
+package puzzles.hoppers.solver;
+
+import puzzles.common.solver.Configuration;
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.util.ArrayDeque;
+import java.util.function.Predicate;
+
+/**
+ * This class finds hoppers boards that can never be solved, so a Solver can skip them. The
+ * rules only depend on where the lily pads are, so everything they need is worked out once
+ * from the starting board.
+ *
+ * Every jump moves a frog 2 along one of the diagonals of the lily pad lattice, so each frog
+ * stays on one of four sublattices forever, and the frog it jumps over is always on a
+ * different sublattice. The last green frog has to be jumped by the red frog, which gives
+ * the rules:
+ * 1. parity: every green frog left is on the red frog's sublattice, so none of them can be the last
+ * 2. stranded: a green frog is on a pad from which no jump can ever take it to a pad with a
+ *    jump line through it, so it can never be jumped
+ * 3. stuck red: green frogs are left but the red frog is on a pad it can never jump from
+ * @author Jake Edelstein
+ */
+public class HoppersPruner implements Predicate<Configuration> {
+    /** the rows and columns a frog moves on each of the 8 jumps */
+    private static final int[][] JUMPS = Bitboard.JUMPS;
+
+    private final int numRows;
+    private final int numCols;
+    /** the sublattice of each cell, from 0 to 7 */
+    private final int[] sublattice;
+    /** the pads a frog can jump from in at least one direction */
+    private final boolean[] movable;
+    /** the pads a green frog can never be jumped from, wherever it jumps first */
+    private final boolean[] stranded;
+    /** how many boards each rule cut */
+    private long parityCuts = 0;
+    private long strandedCuts = 0;
+    private long stuckRedCuts = 0;
+
+    /**
+     * Work out the rules for the pads of a board
+     * @param start the starting configuration
+     */
+    public HoppersPruner(HoppersConfig start){
+        this.numRows = start.getNumRows();
+        this.numCols = start.getNumCols();
+        int cells = this.numRows * this.numCols;
+        char[][] grid = start.getGrid();
+        boolean[] pad = new boolean[cells];
+        for (int r = 0; r < this.numRows; r++){
+            for (int c = 0; c < this.numCols; c++){
+                pad[r * this.numCols + c] = grid[r][c] != HoppersConfig.WATER;
+            }
+        }
+        this.sublattice = new int[cells];
+        this.movable = new boolean[cells];
+        boolean[] jumpable = new boolean[cells];
+        for (int r = 0; r < this.numRows; r++){
+            for (int c = 0; c < this.numCols; c++){
+                int cell = r * this.numCols + c;
+                // the lattice turned 45 degrees, where every jump moves 2 along an axis
+                this.sublattice[cell] = (r + c) % 2 * 4 + Math.floorMod(Math.floorDiv(r + c, 2), 2) * 2
+                        + Math.floorMod(Math.floorDiv(r - c, 2), 2);
+                for (int[] jump : JUMPS){
+                    int mr = r + jump[0] / 2;
+                    int mc = c + jump[1] / 2;
+                    if (pad[cell] && isPad(pad, mr, mc) && isPad(pad, r + jump[0], c + jump[1])){
+                        this.movable[cell] = true;
+                        jumpable[mr * this.numCols + mc] = true;
+                    }
+                }
+            }
+        }
+        this.stranded = new boolean[cells];
+        for (int cell = 0; cell < cells; cell++){
+            this.stranded[cell] = pad[cell] && !canReach(pad, jumpable, cell);
+        }
+    }
+
+    /**
+     * @return true if the cell is on the board and not water
+     */
+    private boolean isPad(boolean[] pad, int r, int c){
+        return r >= 0 && c >= 0 && r < this.numRows && c < this.numCols && pad[r * this.numCols + c];
+    }
+
+    /**
+     * Search the jumps out of a pad, ignoring the frogs, for a pad with a jump line through it
+     * @return true if one can be reached
+     */
+    private boolean canReach(boolean[] pad, boolean[] jumpable, int from){
+        boolean[] seen = new boolean[pad.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(from);
+        seen[from] = true;
+        while (!queue.isEmpty()){
+            int cell = queue.remove();
+            if (jumpable[cell]){
+                return true;
+            }
+            int r = cell / this.numCols;
+            int c = cell % this.numCols;
+            for (int[] jump : JUMPS){
+                int lr = r + jump[0];
+                int lc = c + jump[1];
+                if (isPad(pad, r + jump[0] / 2, c + jump[1] / 2) && isPad(pad, lr, lc)
+                        && !seen[lr * this.numCols + lc]){
+                    seen[lr * this.numCols + lc] = true;
+                    queue.add(lr * this.numCols + lc);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check a board against the rules, counting the first rule that cuts it
+     * @param config a HoppersConfig of the same board
+     * @return true if the board can never be solved
+     */
+    @Override
+    public boolean test(Configuration config){
+        char[][] grid = ((HoppersConfig) config).getGrid();
+        int red = -1;
+        int greens = 0;
+        int greenSublattices = 0;
+        boolean strandedGreen = false;
+        for (int r = 0; r < this.numRows; r++){
+            for (int c = 0; c < this.numCols; c++){
+                int cell = r * this.numCols + c;
+                if (grid[r][c] == HoppersConfig.GREEN_FROG){
+                    greens++;
+                    greenSublattices |= 1 << this.sublattice[cell];
+                    strandedGreen |= this.stranded[cell];
+                } else if (grid[r][c] == HoppersConfig.RED_FROG){
+                    red = cell;
+                }
+            }
+        }
+        if (greens == 0 || red < 0){
+            return false;
+        }
+        if (greenSublattices == 1 << this.sublattice[red]){
+            this.parityCuts++;
+            return true;
+        }
+        if (strandedGreen){
+            this.strandedCuts++;
+            return true;
+        }
+        if (!this.movable[red]){
+            this.stuckRedCuts++;
+            return true;
+        }
+        return false;
+    }
+
+    /** getters for private values */
+    public long getParityCuts() {
+        return this.parityCuts;
+    }
+
+    public long getStrandedCuts() {
+        return this.strandedCuts;
+    }
+
+    public long getStuckRedCuts() {
+        return this.stuckRedCuts;
+    }
+
+    /**
+     * @return the number of boards each rule cut, such as "parity 12, stranded 0, stuck red 3"
+     */
+    @Override
+    public String toString(){
+        return "parity " + this.parityCuts + ", stranded " + this.strandedCuts + ", stuck red " + this.stuckRedCuts;
+    }
+}
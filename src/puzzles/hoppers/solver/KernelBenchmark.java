@@ -0,0 +1,65 @@
+package puzzles.hoppers.solver;
+
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class compares the expansion kernels on real boards of a puzzle. It collects the
+ * boards of a breadth-first search, warms each kernel up, then times repeated passes over
+ * all of them. Run it with --add-modules jdk.incubator.vector to include the vector kernel.
+ * @author Jake Edelstein
+ */
+public class KernelBenchmark {
+    /** the number of timed passes over the boards */
+    private static final int PASSES = 50;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java KernelBenchmark filename");
+            System.exit(0);
+        }
+        HoppersConfig config = new HoppersConfig(args[0]);
+        Bitboard board = new Bitboard(config);
+        long[][] boards = new BitboardSolver(new ScalarKernel()).reachable(board);
+        long[] green = boards[0];
+        long[] red = boards[1];
+        System.out.println("Boards: " + green.length);
+
+        List<ExpansionKernel> kernels = new ArrayList<>();
+        kernels.add(new ScalarKernel());
+        ExpansionKernel best = ExpansionKernel.best();
+        if (!(best instanceof ScalarKernel)){
+            kernels.add(best);
+        }
+        long[][] out = new long[Bitboard.DIRECTIONS][green.length];
+        long expected = 0;
+        for (ExpansionKernel kernel : kernels){
+            // warm up so the JIT has compiled the kernel before it is timed
+            for (int pass = 0; pass < PASSES; pass++){
+                kernel.movable(board, green, red, 0, green.length, out);
+            }
+            long started = System.nanoTime();
+            for (int pass = 0; pass < PASSES; pass++){
+                kernel.movable(board, green, red, 0, green.length, out);
+            }
+            long nanos = System.nanoTime() - started;
+            // a checksum that must agree between kernels, which also keeps the work from being skipped
+            long sum = 0;
+            for (long[] movable : out){
+                for (long m : movable){
+                    sum += Long.bitCount(m);
+                }
+            }
+            if (kernel instanceof ScalarKernel){
+                expected = sum;
+            } else if (sum != expected){
+                System.out.println(kernel.name() + " disagrees with the scalar kernel");
+            }
+            System.out.printf("%-20s %8.2f ns/board  (%d moves)%n", kernel.name(),
+                    (double) nanos / PASSES / green.length, sum);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package puzzles.hoppers.solver;
+
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class makes new hoppers boards that are solvable by construction. It starts from a
+ * solved board, a red frog alone on a random pad, and plays jumps backwards: a frog moves
+ * back to where it jumped from and a green frog appears on the pad it jumped over. Playing
+ * the un-jumps forwards again solves the board, so no board needs to be checked by a solver.
+ *
+ * Every jump takes away one green frog, so a board made with n un-jumps has n green frogs
+ * and every one of its solutions takes exactly n moves. Boards are played on bitmasks, so
+ * they can have at most 64 cells, with pads where the row plus the column is even, like
+ * the boards in data/hoppers.
+ *
+ * Several threads play at once, each with its own random numbers. Boards that are the same
+ * up to a reflection or rotation of the board are only kept once.
+ * @author Jake Edelstein
+ */
+public class PuzzleGenerator {
+    /** how many times a thread may get stuck in a row before giving up */
+    private static final int MAX_STUCK = 10_000;
+
+    private final int numRows;
+    private final int numCols;
+    private final Bitboard board;
+    /** the cell each cell goes to under each symmetry of the board */
+    private final List<int[]> symmetries = new ArrayList<>();
+    /** the boards made so far, in their smallest form under the symmetries */
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param numRows the number of rows
+     * @param numCols the number of columns
+     * @throws IllegalArgumentException if the board has more than 64 cells
+     */
+    public PuzzleGenerator(int numRows, int numCols){
+        this.numRows = numRows;
+        this.numCols = numCols;
+        StringBuilder empty = new StringBuilder(numRows + " " + numCols + "\n");
+        for (int r = 0; r < numRows; r++){
+            for (int c = 0; c < numCols; c++){
+                empty.append(c == 0 ? "" : " ").append((r + c) % 2 == 0 ? HoppersConfig.NO_FROG : HoppersConfig.WATER);
+            }
+            empty.append('\n');
+        }
+        try {
+            this.board = new Bitboard(new HoppersConfig(new StringReader(empty.toString())));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        findSymmetries();
+    }
+
+    /**
+     * Find the reflections and rotations that keep the pads where they are
+     */
+    private void findSymmetries(){
+        int rows = this.numRows;
+        int cols = this.numCols;
+        for (int s = 0; s < 8; s++){
+            // rotations by 90 degrees only work on square boards
+            if (s >= 4 && rows != cols){
+                break;
+            }
+            int[] map = new int[rows * cols];
+            boolean keepsPads = true;
+            for (int r = 0; r < rows && keepsPads; r++){
+                for (int c = 0; c < cols; c++){
+                    int nr = (s & 1) != 0 ? rows - 1 - r : r;
+                    int nc = (s & 2) != 0 ? cols - 1 - c : c;
+                    if ((s & 4) != 0){
+                        int t = nr;
+                        nr = nc;
+                        nc = t;
+                    }
+                    if ((r + c) % 2 != (nr + nc) % 2){
+                        keepsPads = false;
+                        break;
+                    }
+                    map[r * cols + c] = nr * cols + nc;
+                }
+            }
+            if (keepsPads){
+                this.symmetries.add(map);
+            }
+        }
+    }
+
+    /**
+     * Make boards and write each one to its own file in the data/hoppers format
+     * @param moves the length of every solution, which is also the number of green frogs
+     * @param count the number of boards to make
+     * @param dir the directory to write to
+     * @param threads the number of threads
+     * @param seed the seed of the random numbers, each thread gets its own split of it
+     * @return the number of boards written, which is less than count if the board ran out of new ones
+     * @throws IOException if a file can't be written
+     */
+    public int generate(int moves, int count, Path dir, int threads, long seed) throws IOException {
+        Files.createDirectories(dir);
+        AtomicInteger made = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Future<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++){
+            SplittableRandom random = root.split();
+            workers.add(executor.submit(() -> {
+                work(moves, count, dir, random, made);
+                return null;
+            }));
+        }
+        executor.shutdown();
+        try {
+            for (Future<Void> worker : workers){
+                worker.get();
+            }
+        } catch (Exception e) {
+            executor.shutdownNow();
+            throw new IOException("Generating failed", e);
+        }
+        return Math.min(made.get(), count);
+    }
+
+    /**
+     * Make boards on one thread until enough have been made in total
+     */
+    private void work(int moves, int count, Path dir, SplittableRandom random, AtomicInteger made) throws IOException {
+        int stuck = 0;
+        while (made.get() < count && stuck < MAX_STUCK){
+            long[] frogs = play(moves, random);
+            if (frogs == null || !this.seen.add(canonical(frogs[0], frogs[1]))){
+                stuck++;
+                continue;
+            }
+            stuck = 0;
+            int index = made.getAndIncrement();
+            if (index >= count){
+                return;
+            }
+            String text = this.numRows + " " + this.numCols + "\r\n"
+                    + this.board.toString(frogs[0], frogs[1]).replace("\n", "\r\n") + "\r\n";
+            Files.write(dir.resolve("hoppers-" + moves + "-" + index + ".txt"), text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Play un-jumps backwards from a red frog alone on a random pad
+     * @param moves the number of un-jumps
+     * @param random the random numbers
+     * @return the green frogs and the red frog, or null if no un-jump was left before the end
+     */
+    long[] play(int moves, SplittableRandom random){
+        long pads = this.board.getPads();
+        long red = pick(pads, random);
+        long green = 0;
+        long[] options = new long[Bitboard.DIRECTIONS];
+        for (int m = 0; m < moves; m++){
+            long frogs = green | red;
+            long empty = pads & ~frogs;
+            int total = 0;
+            for (int d = 0; d < Bitboard.DIRECTIONS; d++){
+                int offset = this.board.getOffset(d);
+                // a frog on a landing pad whose jump-from pad and jumped-over pad are both empty
+                options[d] = frogs & Bitboard.shift(this.board.getFrom(d) & empty, -offset)
+                        & Bitboard.shift(empty, -offset / 2);
+                total += Long.bitCount(options[d]);
+            }
+            if (total == 0){
+                return null;
+            }
+            int choice = random.nextInt(total);
+            int d = 0;
+            while (choice >= Long.bitCount(options[d])){
+                choice -= Long.bitCount(options[d]);
+                d++;
+            }
+            long land = nth(options[d], choice);
+            int offset = this.board.getOffset(d);
+            long from = Bitboard.shift(land, offset);
+            long over = Bitboard.shift(land, offset / 2);
+            if ((green & land) != 0){
+                green = (green & ~land) | from;
+            } else {
+                red = (red & ~land) | from;
+            }
+            green |= over;
+        }
+        return new long[]{green, red};
+    }
+
+    /**
+     * @return one set bit of a mask, chosen at random
+     */
+    private static long pick(long mask, SplittableRandom random){
+        return nth(mask, random.nextInt(Long.bitCount(mask)));
+    }
+
+    /**
+     * @return the set bit of a mask after skipping n set bits from the lowest
+     */
+    private static long nth(long mask, int n){
+        for (int i = 0; i < n; i++){
+            mask &= mask - 1;
+        }
+        return mask & -mask;
+    }
+
+    /**
+     * @return the smallest form of a board under the symmetries, as a key
+     */
+    private String canonical(long green, long red){
+        String best = null;
+        for (int[] map : this.symmetries){
+            String key = Long.toHexString(move(green, map)) + ":" + Long.toHexString(move(red, map));
+            if (best == null || key.compareTo(best) < 0){
+                best = key;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return a mask with each cell moved to where a symmetry takes it
+     */
+    private static long move(long mask, int[] map){
+        long moved = 0;
+        while (mask != 0){
+            int cell = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            moved |= 1L << map[cell];
+        }
+        return moved;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: java PuzzleGenerator rows cols moves count [directory] [threads] [seed]");
+            System.exit(0);
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        int moves = Integer.parseInt(args[2]);
+        int count = Integer.parseInt(args[3]);
+        Path dir = Path.of(args.length > 4 ? args[4] : "generated");
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : System.nanoTime();
+        int written = new PuzzleGenerator(rows, cols).generate(moves, count, dir, threads, seed);
+        System.out.println("Wrote " + written + " boards to " + dir);
+    }
+}
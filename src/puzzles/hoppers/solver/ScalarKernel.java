@@ -0,0 +1,23 @@
+package puzzles.hoppers.solver;
+
+/**
+ * This class finds the movable frogs one board at a time
+ * @author Jake Edelstein
+ */
+public class ScalarKernel implements ExpansionKernel {
+
+    @Override
+    public void movable(Bitboard board, long[] green, long[] red, int from, int to, long[][] out){
+        for (int d = 0; d < Bitboard.DIRECTIONS; d++){
+            long[] movable = out[d];
+            for (int i = from; i < to; i++){
+                movable[i - from] = board.movable(green[i], red[i], d);
+            }
+        }
+    }
+
+    @Override
+    public String name(){
+        return "scalar";
+    }
+}
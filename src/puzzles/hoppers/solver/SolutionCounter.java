@@ -0,0 +1,244 @@
+package puzzles.hoppers.solver;
+
+import puzzles.common.solver.Configuration;
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class counts and lists every solution of a hoppers board. Every jump removes a green
+ * frog, so no board can be reached twice on one path and the boards form a directed acyclic
+ * graph. The number of solutions from a board is then 1 if it is solved, or else the sum
+ * over its neighbors, and each board only has to be counted once.
+ *
+ * The counts are kept in one table shared by counting and listing, where a count of 0 marks
+ * a dead board that can't lead to a solution. Counts are BigIntegers, since they grow about
+ * as fast as the factorial of the number of frogs. Counting splits the first few levels of
+ * the graph into tasks on a ForkJoinPool.
+ * @author Jake Edelstein
+ */
+public class SolutionCounter {
+    /** boards closer to the start than this are counted in parallel tasks */
+    private static final int PARALLEL_DEPTH = 3;
+
+    private final ForkJoinPool pool;
+    /** the number of solutions from each board counted so far, by its record */
+    private final ConcurrentHashMap<String, BigInteger> counts = new ConcurrentHashMap<>();
+
+    /**
+     * @param pool the pool the counting tasks run on
+     */
+    public SolutionCounter(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * Create a counter that uses the common pool, which has a thread for every processor
+     */
+    public SolutionCounter(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Count the solutions from a board
+     * @param start the board
+     * @return the number of different sequences of jumps that solve it
+     */
+    public BigInteger count(HoppersConfig start){
+        return this.pool.invoke(new CountTask(start, 0));
+    }
+
+    /**
+     * Counts the solutions from one board, forking a task for each neighbor near the start
+     */
+    private class CountTask extends RecursiveTask<BigInteger> {
+        private static final long serialVersionUID = 1L;
+        private final HoppersConfig config;
+        private final int depth;
+
+        CountTask(HoppersConfig config, int depth){
+            this.config = config;
+            this.depth = depth;
+        }
+
+        @Override
+        protected BigInteger compute(){
+            if (this.depth >= PARALLEL_DEPTH){
+                return countFrom(this.config);
+            }
+            String key = key(this.config);
+            BigInteger known = counts.get(key);
+            if (known != null){
+                return known;
+            }
+            BigInteger total;
+            if (this.config.isSolution()){
+                total = BigInteger.ONE;
+            } else {
+                List<CountTask> tasks = new ArrayList<>();
+                for (Configuration c : this.config.getNeighbors()){
+                    tasks.add(new CountTask((HoppersConfig) c, this.depth + 1));
+                }
+                invokeAll(tasks);
+                total = BigInteger.ZERO;
+                for (CountTask task : tasks){
+                    total = total.add(task.join());
+                }
+            }
+            counts.put(key, total);
+            return total;
+        }
+    }
+
+    /**
+     * Count the solutions from a board on the current thread. Two threads may count the same
+     * board at the same time, which only repeats work, since both get the same count.
+     * @param config the board
+     * @return the number of solutions
+     */
+    private BigInteger countFrom(HoppersConfig config){
+        String key = key(config);
+        BigInteger known = this.counts.get(key);
+        if (known != null){
+            return known;
+        }
+        BigInteger total;
+        if (config.isSolution()){
+            total = BigInteger.ONE;
+        } else {
+            total = BigInteger.ZERO;
+            for (Configuration c : config.getNeighbors()){
+                total = total.add(countFrom((HoppersConfig) c));
+            }
+        }
+        this.counts.put(key, total);
+        return total;
+    }
+
+    /**
+     * List the solutions from a board one at a time, in the order of getNeighbors(). Only the
+     * solution being built is kept, and dead boards are skipped using the shared counts.
+     * @param start the board
+     * @return an iterator over the solutions, each a list of boards from the start to the end
+     */
+    public Iterator<List<String>> solutions(HoppersConfig start){
+        return new Iterator<>() {
+            /** the boards of the current path, and the neighbors of each not tried yet */
+            private final LinkedList<HoppersConfig> path = new LinkedList<>();
+            private final LinkedList<Iterator<Configuration>> untried = new LinkedList<>();
+            private List<String> next;
+
+            {
+                if (count(start).signum() > 0){
+                    this.path.add(start);
+                    this.untried.add(start.getNeighbors().iterator());
+                    this.next = start.isSolution() ? toStrings(this.path) : advance();
+                }
+            }
+
+            /**
+             * Go depth first to the next solved board, backing up past boards with nothing left to try
+             * @return the next solution, or null if there are no more
+             */
+            private List<String> advance(){
+                while (!this.untried.isEmpty()){
+                    Iterator<Configuration> options = this.untried.getLast();
+                    if (!options.hasNext()){
+                        this.untried.removeLast();
+                        this.path.removeLast();
+                        continue;
+                    }
+                    HoppersConfig c = (HoppersConfig) options.next();
+                    if (countFrom(c).signum() == 0){
+                        continue;
+                    }
+                    this.path.add(c);
+                    this.untried.add(c.getNeighbors().iterator());
+                    if (c.isSolution()){
+                        return toStrings(this.path);
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.next != null;
+            }
+
+            @Override
+            public List<String> next() {
+                if (this.next == null){
+                    throw new NoSuchElementException();
+                }
+                List<String> solution = this.next;
+                this.next = advance();
+                return solution;
+            }
+        };
+    }
+
+    /**
+     * Find one solution by its position in the order of solutions(), without listing the
+     * ones before it
+     * @param start the board
+     * @param index the position, from 0
+     * @return the solution, as a list of boards from the start to the end
+     * @throws IndexOutOfBoundsException if there are not that many solutions
+     */
+    public List<String> solution(HoppersConfig start, BigInteger index){
+        if (index.signum() < 0 || index.compareTo(count(start)) >= 0){
+            throw new IndexOutOfBoundsException("No solution " + index);
+        }
+        List<HoppersConfig> path = new LinkedList<>();
+        HoppersConfig current = start;
+        path.add(current);
+        while (!current.isSolution()){
+            // skip whole neighbors until the index falls inside one
+            for (Configuration c : current.getNeighbors()){
+                BigInteger count = countFrom((HoppersConfig) c);
+                if (index.compareTo(count) < 0){
+                    current = (HoppersConfig) c;
+                    break;
+                }
+                index = index.subtract(count);
+            }
+            path.add(current);
+        }
+        return toStrings(path);
+    }
+
+    /**
+     * @return the number of boards in the shared table
+     */
+    public int getTableSize(){
+        return this.counts.size();
+    }
+
+    /**
+     * @return the boards as strings
+     */
+    private static List<String> toStrings(List<HoppersConfig> path){
+        List<String> strings = new ArrayList<>(path.size());
+        for (HoppersConfig c : path){
+            strings.add(c.toString());
+        }
+        return strings;
+    }
+
+    /**
+     * @return the key of a board in the shared table, one character per byte of its record
+     */
+    private static String key(HoppersConfig config){
+        return new String(config.encode(), StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,51 @@
+package puzzles.hoppers.solver;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * This class finds the movable frogs of as many boards at once as fit in a SIMD register,
+ * using the incubating Vector API. The JVM needs --add-modules jdk.incubator.vector, so it
+ * is only ever loaded through ExpansionKernel.best(). Boards left over after the last full
+ * register are done one at a time.
+ * @author Jake Edelstein
+ */
+public class VectorKernel implements ExpansionKernel {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public void movable(Bitboard board, long[] green, long[] red, int from, int to, long[][] out){
+        LongVector pads = LongVector.broadcast(SPECIES, board.getPads());
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()){
+            LongVector g = LongVector.fromArray(SPECIES, green, i);
+            LongVector frogs = g.or(LongVector.fromArray(SPECIES, red, i));
+            LongVector empty = pads.and(frogs.not());
+            for (int d = 0; d < Bitboard.DIRECTIONS; d++){
+                int offset = board.getOffset(d);
+                frogs.and(board.getFrom(d))
+                        .and(shift(g, offset / 2))
+                        .and(shift(empty, offset))
+                        .intoArray(out[d], i - from);
+            }
+        }
+        for (; i < to; i++){
+            for (int d = 0; d < Bitboard.DIRECTIONS; d++){
+                out[d][i - from] = board.movable(green[i], red[i], d);
+            }
+        }
+    }
+
+    /**
+     * The same as Bitboard.shift() for every lane
+     */
+    private static LongVector shift(LongVector mask, int offset){
+        return offset >= 0 ? mask.lanewise(VectorOperators.LSHR, offset) : mask.lanewise(VectorOperators.LSHL, -offset);
+    }
+
+    @Override
+    public String name(){
+        return "vector (" + SPECIES.length() + " lanes)";
+    }
+}
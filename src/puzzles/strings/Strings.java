@@ -1,9 +1,10 @@
 package puzzles.strings;
 
-import puzzles.common.solver.Configuration;
+import puzzles.common.solver.DecomposingSolver;
+import puzzles.common.solver.SolutionCache;
 import puzzles.common.solver.Solver;
+import puzzles.common.solver.StateSpaceAnalyzer;
 
-import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -12,9 +13,9 @@ import java.util.List;
  */
 public class Strings extends Solver{
     public static void main(String[] args) {
-        // must have 2 arguments
-        if (args.length != 2) {
-            System.out.println(("Usage: java Strings start finish"));
+        // must have 2 arguments, and may ask for an analysis or a solve one character at a time
+        if (args.length != 2 && !(args.length == 3 && (args[2].equals("--analyze") || args[2].equals("--decompose")))) {
+            System.out.println(("Usage: java Strings start finish [--analyze | --decompose]"));
             System.exit(0);
         // arguments must be same length
         } else if (args[0].length() != args[1].length()){
@@ -25,10 +26,19 @@ public class Strings extends Solver{
             String end = args[1];
             // create initial config
             StringsConfig config = new StringsConfig(start, end);
-            Solver stringSolver = new Solver();
-            HashMap<Configuration, Configuration> predecessors =
-                    stringSolver.findSolution(config, config.getEnd());
-            List<String> path = stringSolver.buildPath(predecessors, config, config.getEnd());
+            if (args.length == 3 && args[2].equals("--analyze")) {
+                // report the shape of the whole state space as JSON
+                System.out.println(new StateSpaceAnalyzer().analyze(config, config.getEnd()).toJson());
+                return;
+            }
+            List<String> path;
+            if (args.length == 3) {
+                // solve each character on its own and join the paths
+                path = new DecomposingSolver().solve(config);
+            } else {
+                // reuse the solution from an earlier run if there is one
+                path = SolutionCache.solveCached(config, config.getEnd());
+            }
             // display statistics and other info
             System.out.println("Start: " + config + ", End: " + config.getEnd());
             System.out.println("Total configurations: " + Solver.totalConfigs);
@@ -1,16 +1,22 @@
 package puzzles.strings;
 
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.DecomposableConfiguration;
+import puzzles.common.solver.EncodableConfiguration;
 import puzzles.common.solver.Solver;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
- * This class represents an individual configuration for the strings puzzle
+ * This class represents an individual configuration for the strings puzzle. Each move
+ * changes one character without looking at the others, so every character is its own
+ * puzzle and the config can be decomposed into one config per character.
  * @author Jake Edelstein
  */
-public class StringsConfig implements Configuration {
+public class StringsConfig implements EncodableConfiguration, DecomposableConfiguration {
 
     private char[] charArray;
     private StringsConfig end;
@@ -28,6 +34,12 @@ public class StringsConfig implements Configuration {
         Solver.totalConfigs++;
     }
 
+    // rebuilt config constructor, not counted as a new config
+    private StringsConfig(char[] charArray, StringsConfig end){
+        this.charArray = charArray;
+        this.end = end;
+    }
+
     /**
      * @return the ending configuration
      */
@@ -90,15 +102,74 @@ public class StringsConfig implements Configuration {
             // increment one character
             StringsConfig neighborUp = new StringsConfig(this.toString());
             neighborUp.charArray[i] = charUp(this.charArray[i]);
+            neighborUp.end = this.end;
             neighbors.add(neighborUp);
             // decrement one character
             StringsConfig neighborDown = new StringsConfig(this.toString());
             neighborDown.charArray[i] = charDown(this.charArray[i]);
+            neighborDown.end = this.end;
             neighbors.add(neighborDown);
         }
         return neighbors;
     }
 
+    /**
+     * Splits the word into one config per character, each with the matching character of
+     * the end as its goal
+     * @return the configs of the characters, in order
+     */
+    @Override
+    public List<Configuration> decompose() {
+        List<Configuration> parts = new ArrayList<>(this.charArray.length);
+        for (int i = 0; i < this.charArray.length; i++){
+            StringsConfig partEnd = new StringsConfig(new char[]{this.end.charArray[i]}, null);
+            parts.add(new StringsConfig(new char[]{this.charArray[i]}, partEnd));
+        }
+        return parts;
+    }
+
+    /**
+     * Joins configs of single characters back into a word for the same puzzle as this one
+     * @param parts the configs of the characters, in order
+     * @return the config of the whole word
+     */
+    @Override
+    public StringsConfig compose(List<Configuration> parts) {
+        char[] word = new char[parts.size()];
+        for (int i = 0; i < word.length; i++){
+            word[i] = ((StringsConfig) parts.get(i)).charArray[0];
+        }
+        return new StringsConfig(word, this.end);
+    }
+
+    /**
+     * Packs the word into a record using 2 bytes per character
+     * @return the packed record
+     */
+    @Override
+    public byte[] encode() {
+        byte[] record = new byte[this.charArray.length * 2];
+        for (int i = 0; i < this.charArray.length; i++){
+            record[2 * i] = (byte) (this.charArray[i] >> 8);
+            record[2 * i + 1] = (byte) this.charArray[i];
+        }
+        return record;
+    }
+
+    /**
+     * Rebuilds a configuration for the same puzzle as this one from a packed record
+     * @param record the packed record
+     * @return the configuration stored in the record
+     */
+    @Override
+    public StringsConfig decode(byte[] record) {
+        char[] word = new char[record.length / 2];
+        for (int i = 0; i < word.length; i++){
+            word[i] = (char) (((record[2 * i] & 0xFF) << 8) | (record[2 * i + 1] & 0xFF));
+        }
+        return new StringsConfig(word, this.end);
+    }
+
     /**
      * Checks to see if two StringsConfig objects are equal
      * @param other the other object